@@ -0,0 +1,35 @@
+// SecurePinInput.js
+
+import {requireNativeComponent, ViewPropTypes} from 'react-native';
+
+const PropTypes = require('prop-types');
+
+/**
+ * A fixed-length PIN field. The digits never leave native code, JS only
+ * learns how many have been typed.
+ */
+const SecurePinInput = requireNativeComponent('RCTSecurePinInput', {
+  name: 'SecurePinInput',
+  propTypes: {
+    ...ViewPropTypes,
+    /**
+     * Native code reads and clears the PIN by this ID.
+     */
+    registrationID: PropTypes.string,
+    /**
+     * Number of digits, from 4 to 8. The default value is 4.
+     */
+    length: PropTypes.number,
+    /**
+     * Color of the cells.
+     */
+    color: PropTypes.string,
+    /**
+     * Callback that is called when a digit is typed or deleted, with
+     * `{ nativeEvent: { filled, complete } }`.
+     */
+    onPinChange: PropTypes.func,
+  },
+});
+
+module.exports = SecurePinInput;
@@ -316,6 +316,88 @@ const TextInput = createReactClass({
        * like passwords stay secure. The default value is `false`. Does not work with 'multiline={true}'.
        */
       secureTextEntry: PropTypes.bool,
+      /**
+       * Validation rules checked natively on every edit, e.g.
+       * `['minLength:12', 'charset:hex']`. Supported rules are `minLength:N`,
+       * `maxLength:N`, `length:N`, `charset:hex|digits|alpha|alnum|base58|ascii`,
+       * `requires:upper|lower|digit|symbol` and `pattern:<regex>`.
+       */
+      validators: PropTypes.arrayOf(PropTypes.string),
+      /**
+       * Callback that is called when the verdict of `validators` changes, with
+       * `{ nativeEvent: { valid, failed } }` where `failed` lists the failing rules.
+       * The value itself is never sent.
+       */
+      onValidationChange: PropTypes.func,
+      /**
+       * Groups the displayed value, e.g. `'hex'` shows `a1b2 c3d4 e5f6`.
+       * Supported formats are `'hex'` and `'card'` (groups of 4, spaces),
+       * `'code'` (groups of 3, dashes) and `'groups:N'`. The separators are
+       * only displayed, the registered value does not contain them.
+       */
+      format: PropTypes.string,
+      /**
+       * Namespace of `registrationID`, e.g. a screen or a flow. Values in the
+       * default scope are wiped when their field unmounts; values in a named
+       * scope are kept until the whole scope is destroyed natively.
+       */
+      registrationScope: PropTypes.string,
+      /**
+       * Wipes the value once it has not changed for this many milliseconds.
+       */
+      retentionTTL: PropTypes.number,
+      /**
+       * Maximum number of bytes of secure data kept natively, across all
+       * fields. Values whose field is unmounted are evicted first, least
+       * recently changed first. The last value set by any field applies.
+       */
+      retentionBudget: PropTypes.number,
+      /**
+       * Adds the field to a group of secure fields, e.g. the words of a recovery
+       * phrase. Native code can read the whole group at once, in `groupIndex`
+       * order.
+       */
+      groupID: PropTypes.string,
+      /**
+       * Position of the field in its group.
+       */
+      groupIndex: PropTypes.number,
+      /**
+       * Callback that is called when the number of fields or of filled fields in
+       * the group changes, or whether they all pass their `validators`, with
+       * `{ nativeEvent: { groupID, fields, filled, valid } }`.
+       */
+      onGroupChange: PropTypes.func,
+      /**
+       * Registration ID of another field of the same scope this field should
+       * match, e.g. the password a confirmation field repeats.
+       */
+      matchRegistrationID: PropTypes.string,
+      /**
+       * Callback that is called when the field starts or stops matching the
+       * `matchRegistrationID` field, with `{ nativeEvent: { matches } }`.
+       */
+      onMatchChange: PropTypes.func,
+      /**
+       * Shows a keypad drawn by the app instead of the system keyboard, so
+       * the field is usable as soon as it is focused and no keyboard app sees
+       * what is typed. The only supported value is `'numeric'`.
+       */
+      keypad: PropTypes.oneOf(['numeric']),
+      /**
+       * Callback that is called when the estimated strength of the value
+       * changes, with `{ nativeEvent: { score } }` where `score` goes from 0
+       * (a common password) to 4. The value itself is never sent.
+       */
+      onStrengthChange: PropTypes.func,
+      /**
+       * Callback that is called when the value changes between not being an
+       * Ethereum address, being one, and being one with a wrong EIP-55
+       * checksum, with `{ nativeEvent: { status } }` where `status` is
+       * `'invalid'`, `'valid'` or `'checksumMismatch'`. The value may start
+       * with `0x`. The value itself is never sent.
+       */
+      onAddressChange: PropTypes.func,
       /**
        * The highlight and cursor color of the text input.
        */
@@ -526,7 +608,33 @@ const TextInput = createReactClass({
         ReactNative.findNodeHandle(this._inputRef)
       );
     },
-  
+
+    /**
+     * Reverts the last group of edits (a word, or a burst of keystrokes).
+     * The history is kept natively, so the value never reaches JS.
+     */
+    undo: function() {
+      this._dispatchCommand('undo');
+    },
+
+    /**
+     * Re-applies the last group of edits reverted with `undo()`.
+     */
+    redo: function() {
+      this._dispatchCommand('redo');
+    },
+
+    _dispatchCommand: function(command: string) {
+      const tag = ReactNative.findNodeHandle(this._inputRef);
+      if (tag != null) {
+        UIManager.dispatchViewManagerCommand(
+          tag,
+          UIManager.getViewManagerConfig('RCTSecureTextInput2').Commands[command],
+          null,
+        );
+      }
+    },
+
     _inputRef: (undefined: any),
     _focusSubscription: (undefined: ?Function),
     // _lastNativeText: (undefined: ?string),
@@ -5,6 +5,10 @@
  * 1. String message: A string with the text to toast
  * 2. int duration: The duration of the toast. May be ToastExample.SHORT or
  *    ToastExample.LONG
+ *
+ * Toasts are shown one after the other, and a message already waiting is not
+ * queued again. 'showAll' takes an array of messages and a duration, and
+ * queues them all in a single call.
  */
 import {NativeModules} from 'react-native';
 module.exports = NativeModules.ToastExample;
\ No newline at end of file
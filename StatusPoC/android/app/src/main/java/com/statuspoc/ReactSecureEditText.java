@@ -5,9 +5,11 @@ import android.text.TextWatcher;
 
 import com.facebook.react.views.text.ReactTextUpdate;
 import com.facebook.react.views.textinput.ReactEditText;
+import javax.annotation.Nullable;
 
 public class ReactSecureEditText extends ReactEditText {
   ReactSecureTextInputManager mManager;
+  private @Nullable ReactSecureTextInputManager.SecureReactTextInputTextWatcher mTextWatcher;
 
   public ReactSecureEditText(ReactSecureTextInputManager manager, Context context) {
     super(context);
@@ -21,10 +23,19 @@ public class ReactSecureEditText extends ReactEditText {
       // Explicitly disallow third-party subscribers
       throw new java.lang.SecurityException();
     }
+    if (mTextWatcher != null) {
+      throw new IllegalStateException("text watcher already added");
+    }
 
+    mTextWatcher = (ReactSecureTextInputManager.SecureReactTextInputTextWatcher) watcher;
     super.addTextChangedListener(watcher);
   }
 
+  /*package*/ @Nullable
+  ReactSecureTextInputManager.SecureReactTextInputTextWatcher getTextWatcher() {
+    return mTextWatcher;
+  }
+
   @Override
   public void onDetachedFromWindow() {
     super.onDetachedFromWindow();
@@ -11,6 +11,7 @@ import android.widget.EditText;
 import android.widget.TextView;
 import android.util.ArrayMap;
 import com.facebook.infer.annotation.Assertions;
+import com.facebook.react.bridge.UiThreadUtil;
 import com.facebook.react.module.annotations.ReactModule;
 import com.facebook.react.uimanager.PixelUtil;
 import com.facebook.react.uimanager.ThemedReactContext;
@@ -19,17 +20,48 @@ import com.facebook.react.uimanager.annotations.ReactProp;
 import com.facebook.react.views.text.ReactTextUpdate;
 import com.facebook.react.views.textinput.ReactEditText;
 import com.facebook.react.views.textinput.ReactTextInputManager;
+import java.util.Map;
 
 /**
  * Manages instances of SecureTextInput.
+ *
+ * setText() and setTexts() can be called from any thread, getText() reads the values the views
+ * keep up to date and must be called on the UI thread.
  */
 @ReactModule(name = ReactSecureTextInputManager.REACT_CLASS)
 public class ReactSecureTextInputManager extends ReactTextInputManager {
 
   protected static final String REACT_CLASS = "RCTSecureTextInput";
-  private static final ArrayMap<String, String> registrationMap = new ArrayMap<String, String>();
-  private static final ArrayMap<EditText, String> viewToIdMap = new ArrayMap<EditText, String>();
-  private static final ArrayMap<String, EditText> idToViewMap = new ArrayMap<String, EditText>();
+
+  /**
+   * The values and views of a React instance, see SecureRegistryModule.
+   */
+  static final class Registrations {
+    private final ArrayMap<String, String> mValues = new ArrayMap<String, String>();
+    private final ArrayMap<EditText, String> mViewToId = new ArrayMap<EditText, String>();
+    private final ArrayMap<String, EditText> mIdToView = new ArrayMap<String, EditText>();
+    private final SecureTextBatch mTextBatch = new SecureTextBatch(
+        new SecureTextBatch.Target() {
+          @Override
+          public void apply(String scope, String id, String value) {
+            mValues.put(id, value);
+            final EditText view = mIdToView.get(id);
+            if (view != null) {
+              view.setText(value);
+            }
+          }
+        });
+
+    SecureTextBatch getTextBatch() {
+      return mTextBatch;
+    }
+
+    void clear() {
+      mValues.clear();
+      mViewToId.clear();
+      mIdToView.clear();
+    }
+  }
 
   @Override
   public String getName() {
@@ -45,27 +77,64 @@ public class ReactSecureTextInputManager extends ReactTextInputManager {
       throw new IllegalArgumentException("id");
     }
 
-    if (!registrationMap.containsKey(id)) {
-      registrationMap.put(id, view.getText().toString());
+    final Registrations registrations = registrationsOf(view);
+    final String previousId = registrations.mViewToId.get(view);
+    if (previousId != null && !previousId.equals(id)) {
+      // The previous entry is dropped as if the view had been detached
+      unregister(view, previousId);
+    }
+    if (!registrations.mValues.containsKey(id)) {
+      registrations.mValues.put(id, view.getText().toString());
     }
-    viewToIdMap.put(view, id);
-    idToViewMap.put(id, view);
+    registrations.mViewToId.put(view, id);
+    registrations.mIdToView.put(id, view);
 
-    view.addTextChangedListener(new SecureReactTextInputTextWatcher(view));
+    // This prop can be updated any number of times, but the view only ever needs one watcher
+    if (view.getTextWatcher() == null) {
+      view.addTextChangedListener(new SecureReactTextInputTextWatcher(view));
+    }
     view.setOnKeyPress(false);
   }
 
+  // The registrations of the React instance of a view
+  private static Registrations registrationsOf(EditText view) {
+    return SecureRegistryModule.get(view.getContext()).getLegacyRegistrations();
+  }
+
+  /*package*/ static int getRegistrySize() {
+    final SecureRegistryModule module = SecureRegistryModule.getCurrent();
+    return module != null ? module.getLegacyRegistrations().mValues.size() : 0;
+  }
+
+  /*package*/ static int getRegisteredViewCount() {
+    final SecureRegistryModule module = SecureRegistryModule.getCurrent();
+    return module != null ? module.getLegacyRegistrations().mViewToId.size() : 0;
+  }
+
   public static String getText(final String id) {
-    return registrationMap.get(id);
+    UiThreadUtil.assertOnUiThread();
+    final String pending =
+        SecureRegistryModule.getCurrentLegacyTextBatch().get(SecureRegistry.DEFAULT_SCOPE, id);
+    if (pending != null) {
+      return pending;
+    }
+    final SecureRegistryModule module = SecureRegistryModule.getCurrent();
+    return module != null ? module.getLegacyRegistrations().mValues.get(id) : null;
   }
 
+  /**
+   * Sets the value of a field from any thread. It is applied on the next frame, and only the last
+   * value set by then is rendered.
+   */
   public static void setText(final String id, final String value) {
-    registrationMap.put(id, value);
+    SecureRegistryModule.getCurrentLegacyTextBatch().put(SecureRegistry.DEFAULT_SCOPE, id, value);
+  }
 
-    final EditText view = idToViewMap.get(id);
-    if (view != null) {
-      view.setText(value);
-    }
+  /**
+   * Sets the values of several fields, by registration ID, as setText() does.
+   */
+  public static void setTexts(final Map<String, String> values) {
+    SecureRegistryModule.getCurrentLegacyTextBatch().putAll(SecureRegistry.DEFAULT_SCOPE, values);
   }
 
   @Override
@@ -81,25 +150,34 @@ public class ReactSecureTextInputManager extends ReactTextInputManager {
   }
 
   void onDetachedFromWindow(ReactSecureEditText view) {
-    final String id = this.viewToIdMap.get(view);
+    final String id = registrationsOf(view).mViewToId.get(view);
     if (id == null) {
       Log.d(REACT_CLASS, "unknown ReactSecureEditText detached");
       return;
     }
 
-    this.viewToIdMap.remove(view);
-    this.idToViewMap.remove(id);
-    this.registrationMap.remove(id);
+    unregister(view, id);
+  }
+
+  private static void unregister(ReactSecureEditText view, String id) {
+    final Registrations registrations = registrationsOf(view);
+    registrations.mViewToId.remove(view);
+    if (registrations.mIdToView.get(id) == view) {
+      registrations.mIdToView.remove(id);
+    }
+    registrations.mValues.remove(id);
   }
 
   class SecureReactTextInputTextWatcher implements TextWatcher {
 
     private ReactSecureEditText mEditText;
+    private final Registrations mRegistrations;
     private String mPreviousText;
 
     public SecureReactTextInputTextWatcher(
         final ReactSecureEditText editText) {
       mEditText = editText;
+      mRegistrations = registrationsOf(editText);
       mPreviousText = null;
     }
 
@@ -127,7 +205,7 @@ public class ReactSecureTextInputManager extends ReactTextInputManager {
 
       newText = s.toString();
       //Log.d(REACT_CLASS, "newText: " + newText);
-      registrationMap.put(viewToIdMap.get(mEditText), newText);
+      mRegistrations.mValues.put(mRegistrations.mViewToId.get(mEditText), newText);
     }
 
     @Override
@@ -146,10 +224,12 @@ public class ReactSecureTextInputManager extends ReactTextInputManager {
           (int) update.getPaddingRight(),
           (int) update.getPaddingBottom());
 
-      final String id = viewToIdMap.get(view);
-      final String text = getText(id);
+      final Registrations registrations = registrationsOf(view);
+      final String id = registrations.mViewToId.get(view);
+      final String pending = registrations.mTextBatch.get(SecureRegistry.DEFAULT_SCOPE, id);
+      final String text = pending != null ? pending : registrations.mValues.get(id);
       view.setText(text);
-      registrationMap.put(id, text);
+      registrations.mValues.put(id, text);
     }
   }
 
@@ -20,7 +20,8 @@ public class ReactSecureTextInputPackage implements ReactPackage {
                             ReactApplicationContext reactContext) {
     return Arrays.<ViewManager>asList(
       new ReactSecureTextInputManager(),
-      new SecureTextInputManager()
+      new SecureTextInputManager(),
+      new SecurePinInputManager()
     );
   }
 
@@ -29,6 +30,8 @@ public class ReactSecureTextInputPackage implements ReactPackage {
                               ReactApplicationContext reactContext) {
     List<NativeModule> modules = new ArrayList<>();
 
+    modules.add(new SecureRegistryModule(reactContext));
+
     return modules;
   }
 }
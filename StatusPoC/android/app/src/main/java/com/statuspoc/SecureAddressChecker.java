@@ -0,0 +1,215 @@
+package com.statuspoc;
+
+import android.os.Handler;
+import android.os.Looper;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Checks that a secure field holds an Ethereum address, with a valid EIP-55 checksum if it is in
+ * mixed case.
+ *
+ * The number of non-hex chars and of upper and lower case hex letters are kept up to date from the
+ * edits, so the shape of the value is known after each keystroke without reading it. Once it is
+ * 40 hex digits, optionally prefixed with "0x", in mixed case, the checksum is verified on a
+ * background thread, hashing a copy of the digits that is wiped afterwards. Results are cached by
+ * the content digest of the field, see {@link SecureField#getDigest}, so checking a value again,
+ * e.g. after an undo, doesn't hash it again.
+ */
+final class SecureAddressChecker implements SecureField.EditListener {
+
+  interface Listener {
+    void onStatusChanged(int status);
+  }
+
+  static final int INVALID = 0;
+  static final int VALID = 1;
+  static final int CHECKSUM_MISMATCH = 2;
+
+  private static final int DIGITS = 40;
+  private static final int PREFIX = 2;
+  private static final int MAX_CACHED = 16;
+  private static final int UNKNOWN = -1;
+
+  private static final Executor executor = Executors.newSingleThreadExecutor();
+  private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+  // Checksum verdicts by content digest of the field, UI thread only
+  private static final LinkedHashMap<ByteBuffer, Boolean> checksums =
+      new LinkedHashMap<ByteBuffer, Boolean>(MAX_CACHED, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ByteBuffer, Boolean> eldest) {
+          return size() > MAX_CACHED;
+        }
+      };
+
+  private final SecureField mField;
+  private final Listener mListener;
+  // UI thread only
+  private int mNonHex;
+  private int mUpperCase;
+  private int mLowerCase;
+  private int mStatus = UNKNOWN;
+  private boolean mCheckPosted;
+  private boolean mChecking;
+  private boolean mClosed;
+
+  // Owned by the background thread while checking, by the UI thread otherwise
+  private final byte[] mDigits = new byte[DIGITS];
+  private final byte[] mUpperCaseDigits = new byte[DIGITS];
+  private final byte[] mHash = new byte[SecureKeccak.DIGEST_LENGTH];
+  private final byte[] mKey = new byte[SecureDigest.DIGEST_LENGTH];
+  private final SecureKeccak mKeccak = new SecureKeccak();
+  private boolean mResult;
+
+  private final Runnable mCheck = new Runnable() {
+    @Override
+    public void run() {
+      mCheckPosted = false;
+      check();
+    }
+  };
+
+  private final Runnable mCheckJob = new Runnable() {
+    @Override
+    public void run() {
+      mKeccak.digest(mDigits, 0, DIGITS, mHash, 0);
+      // A letter is upper case iff the matching nibble of the hash of the lower case digits is
+      // at least 8
+      boolean valid = true;
+      for (int i = 0; i < DIGITS; i++) {
+        final int nibble = (mHash[i / 2] >> (i % 2 == 0 ? 4 : 0)) & 0xf;
+        if (mDigits[i] >= 'a' && (mUpperCaseDigits[i] != 0) != (nibble >= 8)) {
+          valid = false;
+        }
+      }
+      mResult = valid;
+      Arrays.fill(mDigits, (byte) 0);
+      Arrays.fill(mUpperCaseDigits, (byte) 0);
+      Arrays.fill(mHash, (byte) 0);
+      mainHandler.post(mDeliver);
+    }
+  };
+
+  private final Runnable mDeliver = new Runnable() {
+    @Override
+    public void run() {
+      mChecking = false;
+      if (mClosed) {
+        return;
+      }
+      checksums.put(ByteBuffer.wrap(Arrays.copyOf(mKey, mKey.length)), mResult);
+      // The value may have changed meanwhile, the cache answers if it didn't
+      check();
+    }
+  };
+
+  SecureAddressChecker(SecureField field, Listener listener) {
+    mField = field;
+    mListener = listener;
+    final SecureBuffer value = field.getValue();
+    count(value, 0, value.length(), 1);
+    field.addEditListener(this);
+    update();
+  }
+
+  SecureField getField() {
+    return mField;
+  }
+
+  void close() {
+    mField.removeEditListener(this);
+    mClosed = true;
+  }
+
+  @Override
+  public void onBeforeReplace(SecureBuffer value, int start, int before) {
+    count(value, start, start + before, -1);
+  }
+
+  @Override
+  public void onAfterReplace(SecureBuffer value, int start, int count) {
+    count(value, start, start + count, 1);
+    update();
+  }
+
+  private void count(SecureBuffer value, int from, int to, int sign) {
+    for (int i = from; i < to; i++) {
+      final char c = value.charAt(i);
+      if (c >= 'a' && c <= 'f') {
+        mLowerCase += sign;
+      } else if (c >= 'A' && c <= 'F') {
+        mUpperCase += sign;
+      } else if (c < '0' || c > '9') {
+        mNonHex += sign;
+      }
+    }
+  }
+
+  private void update() {
+    final int offset = getDigitsOffset();
+    if (offset < 0) {
+      setStatus(INVALID);
+      return;
+    }
+    // All lower or all upper case addresses carry no checksum
+    if (mUpperCase == 0 || mLowerCase == 0) {
+      setStatus(VALID);
+      return;
+    }
+    // The digest of the field is only up to date once every listener has seen the edit
+    if (!mCheckPosted) {
+      mCheckPosted = true;
+      mainHandler.post(mCheck);
+    }
+  }
+
+  // Where the 40 hex digits start, or -1 if the value is not an address
+  private int getDigitsOffset() {
+    final SecureBuffer value = mField.getValue();
+    final int length = value.length();
+    if (length == DIGITS && mNonHex == 0) {
+      return 0;
+    }
+    if (length == PREFIX + DIGITS
+        && mNonHex == 1
+        && value.charAt(0) == '0'
+        && (value.charAt(1) == 'x' || value.charAt(1) == 'X')) {
+      return PREFIX;
+    }
+    return -1;
+  }
+
+  private void check() {
+    final int offset = getDigitsOffset();
+    // The background thread uses mKey until it is done, and checks again then
+    if (mClosed || mChecking || offset < 0 || mUpperCase == 0 || mLowerCase == 0) {
+      return;
+    }
+    mField.getDigest(mKey, 0);
+    final Boolean cached = checksums.get(ByteBuffer.wrap(mKey));
+    if (cached != null) {
+      setStatus(cached ? VALID : CHECKSUM_MISMATCH);
+      return;
+    }
+
+    final SecureBuffer value = mField.getValue();
+    for (int i = 0; i < DIGITS; i++) {
+      final char c = value.charAt(offset + i);
+      mUpperCaseDigits[i] = (byte) (c >= 'A' && c <= 'F' ? 1 : 0);
+      mDigits[i] = (byte) Character.toLowerCase(c);
+    }
+    mChecking = true;
+    executor.execute(mCheckJob);
+  }
+
+  private void setStatus(int status) {
+    if (status != mStatus) {
+      mStatus = status;
+      mListener.onStatusChanged(status);
+    }
+  }
+}
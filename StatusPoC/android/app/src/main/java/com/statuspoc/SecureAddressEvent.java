@@ -0,0 +1,48 @@
+package com.statuspoc;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.uimanager.events.Event;
+import com.facebook.react.uimanager.events.RCTEventEmitter;
+
+/**
+ * Event emitted when the address check of a secure field changes. It only carries the status:
+ * "invalid", "valid" or "checksumMismatch".
+ */
+public class SecureAddressEvent extends Event<SecureAddressEvent> {
+
+  public static final String EVENT_NAME = "topAddressChange";
+
+  private final int mStatus;
+
+  public SecureAddressEvent(int viewId, int status) {
+    super(viewId);
+    mStatus = status;
+  }
+
+  @Override
+  public String getEventName() {
+    return EVENT_NAME;
+  }
+
+  @Override
+  public void dispatch(RCTEventEmitter rctEventEmitter) {
+    rctEventEmitter.receiveEvent(getViewTag(), getEventName(), serializeEventData());
+  }
+
+  private WritableMap serializeEventData() {
+    WritableMap eventData = Arguments.createMap();
+    switch (mStatus) {
+      case SecureAddressChecker.VALID:
+        eventData.putString("status", "valid");
+        break;
+      case SecureAddressChecker.CHECKSUM_MISMATCH:
+        eventData.putString("status", "checksumMismatch");
+        break;
+      default:
+        eventData.putString("status", "invalid");
+        break;
+    }
+    return eventData;
+  }
+}
@@ -0,0 +1,258 @@
+package com.statuspoc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import javax.annotation.Nullable;
+
+/**
+ * A single char array that the secure fields of a scope keep their chars in, so the whole scope
+ * can be wiped and dropped at once, however many fields it has.
+ *
+ * Each field owns {@link Slice}s of the array. Slices are handed out at the end of the used space,
+ * and a slice that has to grow is moved there. The space left behind is zeroed right away, and
+ * reclaimed by compacting the live slices to the front of the array, or into a larger one when
+ * more than half of it is live. Every array that is dropped is zeroed first.
+ */
+final class SecureArena {
+
+  private static final int MIN_CAPACITY = 64;
+  private static final char[] EMPTY = new char[0];
+
+  /**
+   * State kept outside of the arena that is derived from the chars in it, e.g. a digest, and has to
+   * be wiped along with them.
+   */
+  interface Dependent {
+    void onArenaReleased();
+  }
+
+  /**
+   * A range of the arena. Its offset changes when the arena is compacted, so it must be read again
+   * after any call that may allocate.
+   */
+  static final class Slice {
+    private final SecureArena mArena;
+    private int mOffset;
+    private int mCapacity;
+    private @Nullable Slice mPrevious;
+    private @Nullable Slice mNext;
+
+    private Slice(SecureArena arena) {
+      mArena = arena;
+    }
+
+    SecureArena getArena() {
+      return mArena;
+    }
+
+    int getOffset() {
+      return mOffset;
+    }
+
+    int getCapacity() {
+      return mCapacity;
+    }
+  }
+
+  private char[] mChars = EMPTY;
+  // Chars handed out so far, including the ones of freed slices until the next compaction
+  private int mUsed;
+  // Chars held by the live slices
+  private int mLive;
+  // Live slices, by offset
+  private @Nullable Slice mFirst;
+  private @Nullable Slice mLast;
+  private final ArrayList<Dependent> mDependents = new ArrayList<Dependent>();
+  private boolean mReleased;
+
+  char[] getChars() {
+    return mChars;
+  }
+
+  boolean isReleased() {
+    return mReleased;
+  }
+
+  /**
+   * Returns the number of bytes the arena holds, including the space not handed out yet.
+   */
+  int getBytes() {
+    return mChars.length * 2;
+  }
+
+  void addDependent(Dependent dependent) {
+    mDependents.add(dependent);
+  }
+
+  void removeDependent(Dependent dependent) {
+    mDependents.remove(dependent);
+  }
+
+  /**
+   * Returns a zeroed slice of {@code capacity} chars.
+   */
+  Slice allocate(int capacity) {
+    checkNotReleased();
+    makeRoom(capacity);
+    final Slice slice = new Slice(this);
+    append(slice, capacity);
+    return slice;
+  }
+
+  /**
+   * Moves {@code slice} to a range of {@code capacity} chars, keeping its first {@code keep} chars.
+   * The range it leaves is zeroed.
+   */
+  void resize(Slice slice, int capacity, int keep) {
+    checkNotReleased();
+    checkOwner(slice);
+    if (capacity <= slice.mCapacity) {
+      // Shrinks in place, the end is reclaimed by the next compaction
+      Arrays.fill(mChars, slice.mOffset + capacity, slice.mOffset + slice.mCapacity, '\0');
+      mLive -= slice.mCapacity - capacity;
+      slice.mCapacity = capacity;
+      return;
+    }
+    if (slice.mOffset + slice.mCapacity == mUsed && slice.mOffset + capacity <= mChars.length) {
+      // The last slice grows in place
+      mUsed += capacity - slice.mCapacity;
+      mLive += capacity - slice.mCapacity;
+      slice.mCapacity = capacity;
+      return;
+    }
+
+    // Compacting may move the slice, so its range is only read afterwards
+    makeRoom(capacity);
+    final int offset = slice.mOffset;
+    System.arraycopy(mChars, offset, mChars, mUsed, keep);
+    Arrays.fill(mChars, offset, offset + slice.mCapacity, '\0');
+    unlink(slice);
+    append(slice, capacity);
+  }
+
+  /**
+   * Zeroes the range of {@code slice} and gives it back to the arena.
+   */
+  void free(Slice slice) {
+    checkOwner(slice);
+    if (mReleased || slice.mCapacity == 0) {
+      return;
+    }
+    Arrays.fill(mChars, slice.mOffset, slice.mOffset + slice.mCapacity, '\0');
+    unlink(slice);
+    slice.mCapacity = 0;
+  }
+
+  /**
+   * Compacts the live slices into an array that just fits them, zeroing the old one. Returns the
+   * number of bytes released.
+   */
+  int trimToSize() {
+    if (mReleased) {
+      return 0;
+    }
+    final int capacity = mLive > 0 ? Math.max(MIN_CAPACITY, mLive) : 0;
+    if (capacity >= mChars.length) {
+      return 0;
+    }
+    final int released = (mChars.length - capacity) * 2;
+    moveTo(capacity > 0 ? new char[capacity] : EMPTY);
+    return released;
+  }
+
+  /**
+   * Zeroes the whole arena and drops it, in a single pass over its array, then lets the dependents
+   * wipe their state. Slices can't be used anymore: buffers backed by the arena read as empty, and
+   * writing to them throws.
+   */
+  void release() {
+    Arrays.fill(mChars, '\0');
+    for (int i = 0; i < mDependents.size(); i++) {
+      mDependents.get(i).onArenaReleased();
+    }
+    mDependents.clear();
+    mChars = EMPTY;
+    mFirst = null;
+    mLast = null;
+    mUsed = 0;
+    mLive = 0;
+    mReleased = true;
+  }
+
+  // Makes sure capacity chars can be appended, compacting or growing the array if needed
+  private void makeRoom(int capacity) {
+    if (mUsed + capacity <= mChars.length) {
+      return;
+    }
+    if (2 * (mLive + capacity) <= mChars.length) {
+      moveTo(mChars);
+    } else {
+      moveTo(new char[Math.max(MIN_CAPACITY, Math.max(mChars.length * 2, mLive + capacity))]);
+    }
+  }
+
+  private void append(Slice slice, int capacity) {
+    slice.mOffset = mUsed;
+    slice.mCapacity = capacity;
+    slice.mPrevious = mLast;
+    slice.mNext = null;
+    if (mLast != null) {
+      mLast.mNext = slice;
+    } else {
+      mFirst = slice;
+    }
+    mLast = slice;
+    mUsed += capacity;
+    mLive += capacity;
+  }
+
+  private void unlink(Slice slice) {
+    if (slice.mPrevious != null) {
+      slice.mPrevious.mNext = slice.mNext;
+    } else if (mFirst == slice) {
+      mFirst = slice.mNext;
+    } else {
+      // Already freed
+      return;
+    }
+    if (slice.mNext != null) {
+      slice.mNext.mPrevious = slice.mPrevious;
+    } else {
+      mLast = slice.mPrevious;
+    }
+    slice.mPrevious = null;
+    slice.mNext = null;
+    mLive -= slice.mCapacity;
+  }
+
+  // Copies the live slices to the front of chars, which may be the current array, and zeroes what
+  // is left of the old one
+  private void moveTo(char[] chars) {
+    int offset = 0;
+    for (Slice slice = mFirst; slice != null; slice = slice.mNext) {
+      System.arraycopy(mChars, slice.mOffset, chars, offset, slice.mCapacity);
+      slice.mOffset = offset;
+      offset += slice.mCapacity;
+    }
+    if (chars == mChars) {
+      Arrays.fill(mChars, offset, mUsed, '\0');
+    } else {
+      Arrays.fill(mChars, '\0');
+      mChars = chars;
+    }
+    mUsed = offset;
+  }
+
+  private void checkNotReleased() {
+    if (mReleased) {
+      throw new IllegalStateException("arena: released");
+    }
+  }
+
+  private void checkOwner(Slice slice) {
+    if (slice.mArena != this) {
+      throw new IllegalArgumentException("slice: not from this arena");
+    }
+  }
+}
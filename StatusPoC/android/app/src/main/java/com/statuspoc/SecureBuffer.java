@@ -0,0 +1,276 @@
+package com.statuspoc;
+
+import android.text.GetChars;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A growable char buffer holding the value of a secure field.
+ *
+ * Unlike a String, the contents can be edited in place from the deltas reported by a TextWatcher,
+ * and wiped as soon as they are no longer needed. The chars are kept in a slice of a
+ * {@link SecureArena}, which zeroes every range it moves them out of, so no stale copy of the value
+ * is left behind on the heap. Once the buffer or its arena is released it reads as empty.
+ */
+final class SecureBuffer implements CharSequence, GetChars {
+  private static final int MIN_CAPACITY = 16;
+
+  private final SecureArena mArena;
+  private final SecureArena.Slice mSlice;
+  private int mLength;
+
+  /**
+   * Creates a buffer with an arena of its own.
+   */
+  SecureBuffer() {
+    this(new SecureArena());
+  }
+
+  SecureBuffer(SecureArena arena) {
+    mArena = arena;
+    mSlice = arena.allocate(MIN_CAPACITY);
+  }
+
+  @Override
+  public int length() {
+    return isReleased() ? 0 : mLength;
+  }
+
+  @Override
+  public char charAt(int index) {
+    if (index < 0 || index >= length()) {
+      throw new IndexOutOfBoundsException();
+    }
+    return mArena.getChars()[offset() + index];
+  }
+
+  /**
+   * Returns a String copy of the given range. Callers should prefer reading through
+   * {@link #charAt(int)} or {@link #getChars(int, int, char[], int)} instead.
+   */
+  @Override
+  public CharSequence subSequence(int start, int end) {
+    if (start < 0 || end > length() || start > end) {
+      throw new IndexOutOfBoundsException();
+    }
+    return new String(mArena.getChars(), offset() + start, end - start);
+  }
+
+  @Override
+  public void getChars(int start, int end, char[] dest, int destoff) {
+    if (start < 0 || end > length() || start > end) {
+      throw new IndexOutOfBoundsException();
+    }
+    System.arraycopy(mArena.getChars(), offset() + start, dest, destoff, end - start);
+  }
+
+  @Override
+  public String toString() {
+    return new String(mArena.getChars(), offset(), length());
+  }
+
+  /**
+   * Replaces {@code before} chars at {@code start} with {@code count} chars read from
+   * {@code source} starting at {@code sourceStart}. Only the edited range and the tail after it
+   * are touched.
+   */
+  void replace(int start, int before, CharSequence source, int sourceStart, int count) {
+    if (isReleased()) {
+      throw new IllegalStateException("buffer: released");
+    }
+    if (start < 0 || before < 0 || count < 0 || start + before > mLength) {
+      throw new IndexOutOfBoundsException();
+    }
+
+    final int newLength = mLength - before + count;
+    ensureCapacity(newLength);
+
+    final char[] chars = mArena.getChars();
+    final int offset = offset();
+    final int tail = mLength - (start + before);
+    if (count != before && tail > 0) {
+      System.arraycopy(chars, offset + start + before, chars, offset + start + count, tail);
+    }
+    if (source instanceof GetChars) {
+      ((GetChars) source).getChars(sourceStart, sourceStart + count, chars, offset + start);
+    } else {
+      for (int i = 0; i < count; i++) {
+        chars[offset + start + i] = source.charAt(sourceStart + i);
+      }
+    }
+    if (newLength < mLength) {
+      Arrays.fill(chars, offset + newLength, offset + mLength, '\0');
+    }
+    mLength = newLength;
+  }
+
+  /**
+   * Returns true if the {@code count} chars at {@code start} are equal to the ones in
+   * {@code source} at {@code sourceStart}.
+   */
+  boolean regionMatches(int start, CharSequence source, int sourceStart, int count) {
+    if (start < 0 || start + count > length()) {
+      return false;
+    }
+    final char[] chars = mArena.getChars();
+    final int offset = offset() + start;
+    for (int i = 0; i < count; i++) {
+      if (chars[offset + i] != source.charAt(sourceStart + i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the number of positions from {@code from} on where both buffers have a char and the
+   * chars differ.
+   */
+  int countMismatches(SecureBuffer other, int from) {
+    final int end = Math.min(length(), other.length());
+    final char[] chars = mArena.getChars();
+    final int offset = offset();
+    final char[] otherChars = other.mArena.getChars();
+    final int otherOffset = other.offset();
+    int mismatches = 0;
+    for (int i = from; i < end; i++) {
+      if (chars[offset + i] != otherChars[otherOffset + i]) {
+        mismatches++;
+      }
+    }
+    return mismatches;
+  }
+
+  /**
+   * Compares the contents of both buffers in a time that only depends on their lengths, not on
+   * where they differ.
+   */
+  boolean constantTimeEquals(SecureBuffer other) {
+    final int ownLength = length();
+    final int otherLength = other.length();
+    final char[] chars = mArena.getChars();
+    final int offset = offset();
+    final char[] otherChars = other.mArena.getChars();
+    final int otherOffset = other.offset();
+    final int length = Math.max(ownLength, otherLength);
+    int difference = ownLength ^ otherLength;
+    for (int i = 0; i < length; i++) {
+      final char c = i < ownLength ? chars[offset + i] : 0;
+      final char otherC = i < otherLength ? otherChars[otherOffset + i] : 0;
+      difference |= c ^ otherC;
+    }
+    return difference == 0;
+  }
+
+  /**
+   * Returns the number of bytes of the contents in UTF-8, or -1 if they hold an unpaired
+   * surrogate.
+   */
+  int getUtf8Length() {
+    final char[] chars = mArena.getChars();
+    final int offset = offset();
+    final int end = offset + length();
+    int length = 0;
+    for (int i = offset; i < end; i++) {
+      final char c = chars[i];
+      if (c < 0x80) {
+        length += 1;
+      } else if (c < 0x800) {
+        length += 2;
+      } else if (isSurrogatePair(chars, i, end)) {
+        length += 4;
+        i++;
+      } else if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+        return -1;
+      } else {
+        length += 3;
+      }
+    }
+    return length;
+  }
+
+  /**
+   * Encodes the contents as UTF-8 into {@code out}, one byte at a time, so they are not copied
+   * anywhere else on the way. {@code out} must have {@link #getUtf8Length()} bytes remaining.
+   */
+  void encodeUtf8(ByteBuffer out) {
+    final char[] chars = mArena.getChars();
+    final int offset = offset();
+    final int end = offset + length();
+    for (int i = offset; i < end; i++) {
+      final char c = chars[i];
+      if (c < 0x80) {
+        out.put((byte) c);
+      } else if (c < 0x800) {
+        out.put((byte) (0xc0 | c >> 6));
+        out.put((byte) (0x80 | c & 0x3f));
+      } else if (isSurrogatePair(chars, i, end)) {
+        final int codePoint = Character.toCodePoint(c, chars[++i]);
+        out.put((byte) (0xf0 | codePoint >> 18));
+        out.put((byte) (0x80 | codePoint >> 12 & 0x3f));
+        out.put((byte) (0x80 | codePoint >> 6 & 0x3f));
+        out.put((byte) (0x80 | codePoint & 0x3f));
+      } else if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+        throw new IllegalArgumentException("value: unpaired surrogate");
+      } else {
+        out.put((byte) (0xe0 | c >> 12));
+        out.put((byte) (0x80 | c >> 6 & 0x3f));
+        out.put((byte) (0x80 | c & 0x3f));
+      }
+    }
+  }
+
+  private static boolean isSurrogatePair(char[] chars, int index, int end) {
+    return Character.isHighSurrogate(chars[index])
+        && index + 1 < end
+        && Character.isLowSurrogate(chars[index + 1]);
+  }
+
+  /**
+   * Zeroes the contents of the buffer and resets its length.
+   */
+  void wipe() {
+    if (!isReleased()) {
+      final int offset = offset();
+      Arrays.fill(mArena.getChars(), offset, offset + mSlice.getCapacity(), '\0');
+    }
+    mLength = 0;
+  }
+
+  /**
+   * Wipes the buffer and gives its slice back to the arena. The buffer reads as empty and can't be
+   * written to anymore.
+   */
+  void release() {
+    wipe();
+    mArena.free(mSlice);
+  }
+
+  /**
+   * Shrinks the slice of the buffer to its contents. The space is given back to the arena, see
+   * {@link SecureArena#trimToSize()}.
+   */
+  void trimToSize() {
+    final int capacity = Math.max(MIN_CAPACITY, mLength);
+    if (!isReleased() && capacity < mSlice.getCapacity()) {
+      mArena.resize(mSlice, capacity, mLength);
+    }
+  }
+
+  // Released buffers read as empty, from the start of whatever array the arena has left
+  private int offset() {
+    return isReleased() ? 0 : mSlice.getOffset();
+  }
+
+  // Freed slices are the only ones without capacity
+  private boolean isReleased() {
+    return mArena.isReleased() || mSlice.getCapacity() == 0;
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (capacity > mSlice.getCapacity()) {
+      mArena.resize(mSlice, Math.max(capacity, mSlice.getCapacity() * 2), mLength);
+    }
+  }
+}
@@ -0,0 +1,181 @@
+package com.statuspoc;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * A content digest of a secure value, kept up to date from its edits. It is the root of a SHA-256
+ * hash tree, not the SHA-256 of the value, so it can only be compared with other digests built
+ * here.
+ *
+ * The value is split into chunks of {@link #CHUNK} chars, which are the leaves of a binary hash
+ * tree. An edit only marks the leaves it touched, and the next read rehashes those and the paths
+ * from them to the root, so typing costs O(log n) hashes instead of a pass over the value. An
+ * insertion or deletion in the middle shifts every chunk after it, and rehashes them all.
+ *
+ * Subtrees past the end of the value hash to zeros, and a node with an empty right subtree takes
+ * the hash of its left one, so the digest only depends on the value, not on the size of the tree.
+ * The final digest also covers the length of the value.
+ */
+final class SecureDigest implements SecureField.EditListener {
+
+  static final int DIGEST_LENGTH = 32;
+
+  private static final int CHUNK = 64;
+  private static final byte LEAF = 0;
+  private static final byte NODE = 1;
+  private static final byte ROOT = 2;
+
+  private final MessageDigest mSha256;
+  // Node i of the tree is at i * DIGEST_LENGTH, the root is node 1 and the leaves follow the
+  // internal nodes
+  private byte[] mTree;
+  private int mCapacity;
+  private int mLength;
+  // Range of leaves that need to be rehashed
+  private int mDirtyFrom = Integer.MAX_VALUE;
+  private int mDirtyTo = -1;
+  private int mBefore;
+  private final byte[] mScratch = new byte[CHUNK * 2];
+
+  SecureDigest(SecureBuffer value) {
+    try {
+      mSha256 = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+    mCapacity = 1;
+    mTree = new byte[2 * mCapacity * DIGEST_LENGTH];
+    mLength = value.length();
+    markDirty(0, Integer.MAX_VALUE);
+  }
+
+  @Override
+  public void onBeforeReplace(SecureBuffer value, int start, int before) {
+    mBefore = before;
+  }
+
+  @Override
+  public void onAfterReplace(SecureBuffer value, int start, int count) {
+    final int oldLength = mLength;
+    mLength = value.length();
+    if (count == 0 && mBefore == 0) {
+      return;
+    }
+    // A change of length shifts every chunk after the edit
+    final int end = count == mBefore ? start + count : Math.max(oldLength, mLength);
+    markDirty(start / CHUNK, (end - 1) / CHUNK);
+  }
+
+  /**
+   * Writes the digest of {@code value} to {@code out}, which must have room for
+   * {@link #DIGEST_LENGTH} bytes at {@code offset}.
+   */
+  void getDigest(SecureBuffer value, byte[] out, int offset) {
+    update(value);
+    mSha256.update(ROOT);
+    mSha256.update((byte) (mLength >>> 24));
+    mSha256.update((byte) (mLength >>> 16));
+    mSha256.update((byte) (mLength >>> 8));
+    mSha256.update((byte) mLength);
+    mSha256.update(mTree, DIGEST_LENGTH, DIGEST_LENGTH);
+    finish(out, offset);
+  }
+
+  int getBytes() {
+    return mTree.length + mScratch.length;
+  }
+
+  void wipe() {
+    Arrays.fill(mTree, (byte) 0);
+    Arrays.fill(mScratch, (byte) 0);
+  }
+
+  private void markDirty(int from, int to) {
+    mDirtyFrom = Math.min(mDirtyFrom, from);
+    mDirtyTo = Math.max(mDirtyTo, to);
+  }
+
+  private void update(SecureBuffer value) {
+    final int leaves = (mLength + CHUNK - 1) / CHUNK;
+    if (leaves > mCapacity) {
+      int capacity = mCapacity;
+      while (capacity < leaves) {
+        capacity *= 2;
+      }
+      Arrays.fill(mTree, (byte) 0);
+      mTree = new byte[2 * capacity * DIGEST_LENGTH];
+      mCapacity = capacity;
+      markDirty(0, Integer.MAX_VALUE);
+    }
+    if (mDirtyFrom > mDirtyTo) {
+      return;
+    }
+
+    int from = mDirtyFrom;
+    int to = Math.min(mDirtyTo, mCapacity - 1);
+    for (int leaf = from; leaf <= to; leaf++) {
+      hashLeaf(value, leaf, leaves);
+    }
+    from += mCapacity;
+    to += mCapacity;
+    while (from > 1) {
+      from >>>= 1;
+      to >>>= 1;
+      for (int node = from; node <= to; node++) {
+        hashNode(node);
+      }
+    }
+    mDirtyFrom = Integer.MAX_VALUE;
+    mDirtyTo = -1;
+  }
+
+  private void hashLeaf(SecureBuffer value, int leaf, int leaves) {
+    final int node = (mCapacity + leaf) * DIGEST_LENGTH;
+    if (leaf >= leaves) {
+      Arrays.fill(mTree, node, node + DIGEST_LENGTH, (byte) 0);
+      return;
+    }
+
+    final int start = leaf * CHUNK;
+    final int end = Math.min(start + CHUNK, mLength);
+    for (int i = start; i < end; i++) {
+      final char c = value.charAt(i);
+      mScratch[2 * (i - start)] = (byte) (c >>> 8);
+      mScratch[2 * (i - start) + 1] = (byte) c;
+    }
+    mSha256.update(LEAF);
+    mSha256.update(mScratch, 0, 2 * (end - start));
+    Arrays.fill(mScratch, (byte) 0);
+    finish(mTree, node);
+  }
+
+  private void hashNode(int node) {
+    final int left = 2 * node * DIGEST_LENGTH;
+    final int right = left + DIGEST_LENGTH;
+    if (isEmpty(right)) {
+      System.arraycopy(mTree, left, mTree, node * DIGEST_LENGTH, DIGEST_LENGTH);
+      return;
+    }
+    mSha256.update(NODE);
+    mSha256.update(mTree, left, 2 * DIGEST_LENGTH);
+    finish(mTree, node * DIGEST_LENGTH);
+  }
+
+  private boolean isEmpty(int offset) {
+    int bits = 0;
+    for (int i = offset; i < offset + DIGEST_LENGTH; i++) {
+      bits |= mTree[i];
+    }
+    return bits == 0;
+  }
+
+  private void finish(byte[] out, int offset) {
+    try {
+      mSha256.digest(out, offset, DIGEST_LENGTH);
+    } catch (java.security.DigestException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
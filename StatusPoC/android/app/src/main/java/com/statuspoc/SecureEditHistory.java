@@ -0,0 +1,344 @@
+package com.statuspoc;
+
+import android.os.SystemClock;
+
+import java.util.Arrays;
+
+import javax.annotation.Nullable;
+
+/**
+ * Bounded undo/redo history of a secure field.
+ *
+ * Each edit is stored as a delta (position, removed chars, inserted chars) in a fixed-size ring,
+ * so memory stays bounded no matter how long the field is edited. When the ring is full the oldest
+ * edits are evicted and their chars are zeroed. Consecutive keystrokes are grouped into words and
+ * time windows, and undo/redo replay a whole group at once, touching only the chars of its deltas.
+ * The ring is a slice of the arena of the field, so it is wiped along with the arena.
+ */
+final class SecureEditHistory implements SecureField.EditListener {
+
+  /**
+   * Target that undo/redo replay the recorded deltas on.
+   */
+  interface Editor {
+    void replace(int start, int end, CharSequence text);
+  }
+
+  private static final int MAX_CHARS = 1024;
+  private static final int MAX_EDITS = 128;
+  private static final long GROUP_WINDOW_MS = 1000;
+
+  private final SecureArena mArena;
+  // Lazily allocated, so fields that are never edited don't pay for a history.
+  private @Nullable SecureArena.Slice mChars;
+  private int mCharsStart;
+  private int mCharsUsed;
+
+  private int[] mEditOffset;
+  private int[] mEditStart;
+  private int[] mEditRemoved;
+  private int[] mEditInserted;
+  private int[] mEditGroup;
+  private int mFirstEdit;
+  private int mEditCount;
+  // Edits at [mAppliedCount, mEditCount) have been undone and can be redone.
+  private int mAppliedCount;
+
+  private int mNextGroup;
+  private long mLastEditTime;
+
+  private int mPendingOffset;
+  private int mPendingStart;
+  private int mPendingRemoved;
+  private boolean mPendingOverflow;
+  private boolean mReplaying;
+
+  private final RingSlice mSlice = new RingSlice();
+
+  SecureEditHistory(SecureArena arena) {
+    mArena = arena;
+  }
+
+  @Override
+  public void onBeforeReplace(SecureBuffer value, int start, int before) {
+    if (mReplaying) {
+      return;
+    }
+    if (mChars == null) {
+      allocate();
+    }
+
+    dropRedoEdits();
+    mPendingOffset = (mCharsStart + mCharsUsed) % MAX_CHARS;
+    mPendingStart = start;
+    mPendingRemoved = before;
+    mPendingOverflow = before > MAX_CHARS;
+    if (mPendingOverflow) {
+      return;
+    }
+
+    makeRoom(before);
+    copyIn(value, start, before);
+  }
+
+  @Override
+  public void onAfterReplace(SecureBuffer value, int start, int count) {
+    if (mReplaying) {
+      return;
+    }
+    if (mPendingRemoved == 0 && count == 0) {
+      // Nothing to undo
+      return;
+    }
+
+    if (mPendingOverflow || mPendingRemoved + count > MAX_CHARS) {
+      // The edit is too large to be undone, so the history restarts from here
+      clear();
+      return;
+    }
+
+    makeRoom(count);
+    copyIn(value, start, count);
+
+    if (mEditCount == MAX_EDITS) {
+      evictOldest();
+    }
+
+    final long now = SystemClock.uptimeMillis();
+    final int index = slot(mEditCount);
+    mEditOffset[index] = mPendingOffset;
+    mEditStart[index] = mPendingStart;
+    mEditRemoved[index] = mPendingRemoved;
+    mEditInserted[index] = count;
+    mEditGroup[index] =
+        continuesGroup(value, now) ? mEditGroup[slot(mEditCount - 1)] : mNextGroup++;
+    mEditCount++;
+    mAppliedCount = mEditCount;
+    mLastEditTime = now;
+    mPendingRemoved = 0;
+  }
+
+  /**
+   * Reverts the most recent group of edits. Returns false if there is nothing to undo.
+   */
+  boolean undo(Editor editor) {
+    if (mAppliedCount == 0) {
+      return false;
+    }
+
+    final int group = mEditGroup[slot(mAppliedCount - 1)];
+    mReplaying = true;
+    try {
+      while (mAppliedCount > 0 && mEditGroup[slot(mAppliedCount - 1)] == group) {
+        final int index = slot(mAppliedCount - 1);
+        final int start = mEditStart[index];
+        editor.replace(start, start + mEditInserted[index], slice(index, 0, mEditRemoved[index]));
+        mAppliedCount--;
+      }
+    } finally {
+      mReplaying = false;
+    }
+    // Whatever gets typed next should not be merged into the group that was just undone
+    mLastEditTime = 0;
+    return true;
+  }
+
+  /**
+   * Re-applies the most recently undone group of edits. Returns false if there is nothing to redo.
+   */
+  boolean redo(Editor editor) {
+    if (mAppliedCount == mEditCount) {
+      return false;
+    }
+
+    final int group = mEditGroup[slot(mAppliedCount)];
+    mReplaying = true;
+    try {
+      while (mAppliedCount < mEditCount && mEditGroup[slot(mAppliedCount)] == group) {
+        final int index = slot(mAppliedCount);
+        final int start = mEditStart[index];
+        editor.replace(
+            start,
+            start + mEditRemoved[index],
+            slice(index, mEditRemoved[index], mEditInserted[index]));
+        mAppliedCount++;
+      }
+    } finally {
+      mReplaying = false;
+    }
+    mLastEditTime = 0;
+    return true;
+  }
+
+  boolean canUndo() {
+    return mAppliedCount > 0;
+  }
+
+  boolean canRedo() {
+    return mAppliedCount < mEditCount;
+  }
+
+  /**
+   * Forgets every recorded edit and zeroes the chars they held.
+   */
+  void clear() {
+    if (mChars != null && !mArena.isReleased()) {
+      final int offset = mChars.getOffset();
+      Arrays.fill(mArena.getChars(), offset, offset + MAX_CHARS, '\0');
+    }
+    mCharsStart = 0;
+    mCharsUsed = 0;
+    mFirstEdit = 0;
+    mEditCount = 0;
+    mAppliedCount = 0;
+    mPendingRemoved = 0;
+    mPendingOverflow = false;
+    mLastEditTime = 0;
+  }
+
+  /**
+   * Clears the history and drops its arrays until the next edit. Its chars are given back to the
+   * arena, see {@link SecureArena#trimToSize()}. Returns the number of bytes released on the heap.
+   */
+  int release() {
+    clear();
+    if (mChars == null) {
+      return 0;
+    }
+
+    mArena.free(mChars);
+    mChars = null;
+    mEditOffset = null;
+    mEditStart = null;
+    mEditRemoved = null;
+    mEditInserted = null;
+    mEditGroup = null;
+    return 5 * MAX_EDITS * 4;
+  }
+
+  private void allocate() {
+    mChars = mArena.allocate(MAX_CHARS);
+    mEditOffset = new int[MAX_EDITS];
+    mEditStart = new int[MAX_EDITS];
+    mEditRemoved = new int[MAX_EDITS];
+    mEditInserted = new int[MAX_EDITS];
+    mEditGroup = new int[MAX_EDITS];
+  }
+
+  private int slot(int edit) {
+    return (mFirstEdit + edit) % MAX_EDITS;
+  }
+
+  // Typing a word, or deleting one char after the other, extends the current group as long as the
+  // keystrokes come in quick succession. Anything else starts a new group.
+  private boolean continuesGroup(SecureBuffer value, long now) {
+    if (mEditCount == 0 || now - mLastEditTime > GROUP_WINDOW_MS) {
+      return false;
+    }
+
+    final int previous = slot(mEditCount - 1);
+    final int start = mPendingStart;
+    final int removed = mPendingRemoved;
+    final int inserted = mEditInserted[slot(mEditCount)];
+    if (removed == 0 && inserted > 0 && mEditRemoved[previous] == 0) {
+      if (start == 0 || start != mEditStart[previous] + mEditInserted[previous]) {
+        return false;
+      }
+      // A word ends at the first non-whitespace char typed after whitespace
+      final boolean previousEndsWithSpace = Character.isWhitespace(value.charAt(start - 1));
+      return !previousEndsWithSpace || Character.isWhitespace(value.charAt(start));
+    }
+    if (removed > 0 && inserted == 0 && mEditInserted[previous] == 0) {
+      return start + removed == mEditStart[previous];
+    }
+    return false;
+  }
+
+  private void dropRedoEdits() {
+    while (mEditCount > mAppliedCount) {
+      final int index = slot(mEditCount - 1);
+      final int length = mEditRemoved[index] + mEditInserted[index];
+      wipeChars(mEditOffset[index], length);
+      mCharsUsed -= length;
+      mEditCount--;
+    }
+  }
+
+  private void makeRoom(int count) {
+    while (mCharsUsed + count > MAX_CHARS) {
+      evictOldest();
+    }
+  }
+
+  private void evictOldest() {
+    final int index = slot(0);
+    final int length = mEditRemoved[index] + mEditInserted[index];
+    wipeChars(mCharsStart, length);
+    mCharsStart = (mCharsStart + length) % MAX_CHARS;
+    mCharsUsed -= length;
+    mFirstEdit = (mFirstEdit + 1) % MAX_EDITS;
+    mEditCount--;
+    mAppliedCount = Math.max(0, mAppliedCount - 1);
+  }
+
+  private void copyIn(SecureBuffer value, int start, int count) {
+    final char[] chars = mArena.getChars();
+    final int base = mChars.getOffset();
+    int offset = (mCharsStart + mCharsUsed) % MAX_CHARS;
+    for (int i = 0; i < count; i++) {
+      chars[base + offset] = value.charAt(start + i);
+      offset = (offset + 1) % MAX_CHARS;
+    }
+    mCharsUsed += count;
+  }
+
+  private void wipeChars(int offset, int count) {
+    final char[] chars = mArena.getChars();
+    final int base = mChars.getOffset();
+    for (int i = 0; i < count; i++) {
+      chars[base + (offset + i) % MAX_CHARS] = '\0';
+    }
+  }
+
+  private CharSequence slice(int index, int skip, int length) {
+    mSlice.set((mEditOffset[index] + skip) % MAX_CHARS, length);
+    return mSlice;
+  }
+
+  /**
+   * A view over a range of the ring, so recorded chars can be replayed without copying them.
+   */
+  private class RingSlice implements CharSequence {
+    private int mOffset;
+    private int mLength;
+
+    void set(int offset, int length) {
+      mOffset = offset;
+      mLength = length;
+    }
+
+    @Override
+    public int length() {
+      return mLength;
+    }
+
+    @Override
+    public char charAt(int index) {
+      return mArena.getChars()[mChars.getOffset() + (mOffset + index) % MAX_CHARS];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+      return toString().substring(start, end);
+    }
+
+    @Override
+    public String toString() {
+      final char[] chars = new char[mLength];
+      for (int i = 0; i < mLength; i++) {
+        chars[i] = charAt(i);
+      }
+      return new String(chars);
+    }
+  }
+}
@@ -4,8 +4,11 @@ import android.content.Context;
 import android.graphics.Rect;
 import android.graphics.Typeface;
 import android.os.Build;
+import android.os.SystemClock;
 import android.text.Editable;
 import android.text.InputType;
+import android.text.TextPaint;
+import android.text.TextUtils;
 import android.text.TextWatcher;
 import android.text.method.KeyListener;
 import android.text.method.QwertyKeyListener;
@@ -13,8 +16,10 @@ import android.view.KeyEvent;
 import android.view.View;
 import android.view.inputmethod.EditorInfo;
 import android.view.inputmethod.InputConnection;
+import android.view.inputmethod.InputConnectionWrapper;
 import android.view.inputmethod.InputMethodManager;
 import android.widget.EditText;
+import android.widget.PopupWindow;
 
 import com.facebook.infer.annotation.Assertions;
 import com.facebook.react.bridge.ReactContext;
@@ -23,6 +28,7 @@ import com.facebook.react.uimanager.UIManagerModule;
 import com.facebook.react.views.textinput.ContentSizeWatcher;
 import com.facebook.react.views.textinput.ReactTextInputLocalData;
 import com.facebook.react.views.view.ReactViewBackgroundManager;
+import java.util.List;
 import javax.annotation.Nullable;
 
 /**
@@ -45,10 +51,68 @@ public class SecureEditText extends EditText {
   private @Nullable String mReturnKeyType;
   private @Nullable ContentSizeWatcher mContentSizeWatcher;
   private final InternalKeyListener mKeyListener;
+  private @Nullable SecureTextInputManager.SecureReactTextInputTextWatcher mTextWatcher;
+  private @Nullable String mStagedRegistrationId;
+  private @Nullable String mStagedRegistrationScope;
+  private @Nullable String mRegistrationId;
+  private @Nullable String mRegistrationScope;
   private float mLetterSpacingPt = 0;
+  // Validators set from JS, until they are attached to the registry entry of this view
+  private @Nullable List<SecureValidator> mPendingValidators;
+  private @Nullable SecureFormatter mFormatter;
+  private boolean mIsFormatting;
+  // A large insert still being copied into the registry
+  private @Nullable SecureTextInputManager.BulkInsert mBulkInsert;
+  private @Nullable String mGroupId;
+  private int mGroupIndex;
+  private boolean mGroupChanged;
+  private int mRetentionTtl;
+  private @Nullable String mMatchRegistrationId;
+  // The ID the view is a matcher of in its scope, see SecureRegistry.Scope#addMatcher
+  private @Nullable String mMatchTargetId;
+  private @Nullable SecureMatch mMatch;
+  private boolean mStrengthEnabled;
+  private @Nullable SecureStrengthEstimator mStrength;
+  private boolean mAddressEnabled;
+  private @Nullable SecureAddressChecker mAddress;
+  private boolean mRetentionTtlChanged;
+  // A programmatic load waiting for its layout to be warmed, and the load it belongs to
+  private @Nullable CharSequence mPendingLoad;
+  private int mLoadGeneration;
+  // Set while the registry value is being set on the view, so it isn't fed back into the registry
+  private boolean mIsLoading;
+  private boolean mKeypadEnabled;
+  private @Nullable PopupWindow mKeypadPopup;
+  // Records the shape of the edits made to this view, for benchmarks
+  private @Nullable SecureEditTrace.Recorder mTraceRecorder;
+  // Nesting of the IME batch edit in progress, and whether it changed the text
+  private int mBatchEditDepth;
+  private boolean mBatchEditChanged;
+  // Last measurement data sent for this view while masked
+  private @Nullable SecureTextInputShadowNode.MaskedLocalData mMaskedLocalData;
 
   private ReactViewBackgroundManager mReactBackgroundManager;
 
+  // Undo/redo go through the view, so the change is rendered and fed back into the registry by
+  // the text watcher like any other edit. Kept for the life of the view, undo doesn't allocate.
+  private final SecureEditHistory.Editor mHistoryEditor = new SecureEditHistory.Editor() {
+    @Override
+    public void replace(int start, int end, CharSequence text) {
+      if (mFormatter != null) {
+        final int displayStart = mFormatter.toDisplayStart(start);
+        final int displayEnd = end == start ? displayStart : mFormatter.toDisplayEnd(end);
+        getText().replace(displayStart, displayEnd, text);
+      } else {
+        getText().replace(start, end, text);
+      }
+    }
+  };
+
+  private static final String[] DIGITS = {"0", "1", "2", "3", "4", "5", "6", "7", "8", "9"};
+
+  // Shorter loads are set right away, measuring them doesn't take a noticeable part of a frame
+  private static final int WARM_LAYOUT_THRESHOLD = 2048;
+
   private static final KeyListener sKeyListener = QwertyKeyListener.getInstanceForFullKeyboard();
 
   public SecureEditText(SecureTextInputManager manager, Context context) {
@@ -72,10 +136,18 @@ public class SecureEditText extends EditText {
       // Explicitly disallow third-party subscribers
       throw new java.lang.SecurityException();
     }
+    if (mTextWatcher != null) {
+      throw new IllegalStateException("text watcher already added");
+    }
 
+    mTextWatcher = (SecureTextInputManager.SecureReactTextInputTextWatcher) watcher;
     super.addTextChangedListener(watcher);
   }
 
+  /*package*/ @Nullable SecureTextInputManager.SecureReactTextInputTextWatcher getTextWatcher() {
+    return mTextWatcher;
+  }
+
   public void setContentSizeWatcher(ContentSizeWatcher contentSizeWatcher) {
     mContentSizeWatcher = contentSizeWatcher;
   }
@@ -114,6 +186,11 @@ public class SecureEditText extends EditText {
     // if (inputConnection != null && mOnKeyPress) {
     //   inputConnection = new ReactEditTextInputConnectionWrapper(inputConnection, reactContext, this);
     // }
+    // A batch left open by the previous connection is over
+    closeBatchEdit();
+    if (inputConnection != null) {
+      inputConnection = new BatchEditInputConnection(inputConnection);
+    }
 
     if (isMultiline() && getBlurOnSubmit()) {
       // Remove IME_FLAG_NO_ENTER_ACTION to keep the original IME_OPTION
@@ -153,9 +230,44 @@ public class SecureEditText extends EditText {
     //   }
     // }
 
+    // Separators are put back by the formatter, replaying the edit that caused them does the same
+    if (mTraceRecorder != null && !mIsFormatting && (before > 0 || count > 0)) {
+      mTraceRecorder.record(SystemClock.uptimeMillis(), start, before, count);
+    }
+    // Measured once the whole batch is applied
+    if (mBatchEditDepth > 0) {
+      mBatchEditChanged = true;
+      return;
+    }
     onContentSizeChange();
   }
 
+  /**
+   * Returns whether the IME is in the middle of a batch edit, e.g. replacing a composed word with
+   * its correction.
+   */
+  /*package*/ boolean isInBatchEdit() {
+    return mBatchEditDepth > 0;
+  }
+
+  // Ends a batch edit the IME won't end, e.g. because the connection went away
+  private void closeBatchEdit() {
+    if (mBatchEditDepth > 0) {
+      mBatchEditDepth = 0;
+      onBatchEditEnded();
+    }
+  }
+
+  private void onBatchEditEnded() {
+    if (mTextWatcher != null) {
+      mTextWatcher.applyBatchEdit();
+    }
+    if (mBatchEditChanged) {
+      mBatchEditChanged = false;
+      onContentSizeChange();
+    }
+  }
+
   private boolean isMultiline() {
     return (getInputType() & InputType.TYPE_TEXT_FLAG_MULTI_LINE) != 0;
   }
@@ -169,6 +281,12 @@ public class SecureEditText extends EditText {
   }
 
   private void onContentSizeChange() {
+    // Measuring a large insert is deferred until it is in the registry, to keep it off the frame
+    // of the paste
+    if (mBulkInsert != null) {
+      return;
+    }
+
     // if (mContentSizeWatcher != null) {
     //   mContentSizeWatcher.onLayout();
     // }
@@ -179,7 +297,19 @@ public class SecureEditText extends EditText {
   private void setIntrinsicContentSize() {
     ReactContext reactContext = (ReactContext) getContext();
     UIManagerModule uiManager = reactContext.getNativeModule(UIManagerModule.class);
-    final ReactTextInputLocalData localData = new ReactTextInputLocalData(this);
+    // A masked field is measured from its length, without handing its value to the layout thread.
+    // Layout passes that don't change what it looks like don't send anything.
+    final Object localData;
+    if (SecureTextInputShadowNode.MaskedLocalData.canDescribe(this)) {
+      if (mMaskedLocalData != null && mMaskedLocalData.describes(this)) {
+        return;
+      }
+      mMaskedLocalData = new SecureTextInputShadowNode.MaskedLocalData(this);
+      localData = mMaskedLocalData;
+    } else {
+      mMaskedLocalData = null;
+      localData = new ReactTextInputLocalData(this);
+    }
     uiManager.setViewLocalData(getId(), localData);
   }
 
@@ -250,6 +380,298 @@ public class SecureEditText extends EditText {
     return mReturnKeyType;
   }
 
+  /**
+   * Sets how the value is displayed, re-rendering {@code rawValue} with the new formatting. The
+   * registry is not affected.
+   */
+  /*package*/ void setFormatter(
+      @Nullable SecureFormatter formatter,
+      @Nullable CharSequence rawValue) {
+    mFormatter = formatter;
+    if (rawValue == null) {
+      return;
+    }
+    // rawValue is the registry value, so a pending load would only set it again unformatted
+    cancelLoad();
+
+    mIsFormatting = true;
+    try {
+      setText(rawValue);
+      if (formatter != null) {
+        formatter.format(getText(), 0, getText().length());
+      }
+    } finally {
+      mIsFormatting = false;
+    }
+  }
+
+  /*package*/ @Nullable SecureFormatter getFormatter() {
+    return mFormatter;
+  }
+
+  /*package*/ SecureEditHistory.Editor getHistoryEditor() {
+    return mHistoryEditor;
+  }
+
+  /*package*/ boolean isFormatting() {
+    return mIsFormatting;
+  }
+
+  /*package*/ void setFormatting(boolean formatting) {
+    mIsFormatting = formatting;
+  }
+
+  /*package*/ void setStagedRegistrationId(@Nullable String id) {
+    mStagedRegistrationId = id;
+  }
+
+  /*package*/ @Nullable String getStagedRegistrationId() {
+    return mStagedRegistrationId;
+  }
+
+  /*package*/ void setStagedRegistrationScope(@Nullable String scope) {
+    mStagedRegistrationScope = scope;
+  }
+
+  /*package*/ @Nullable String getStagedRegistrationScope() {
+    return mStagedRegistrationScope;
+  }
+
+  /**
+   * Records where the value of this view is registered, see {@link SecureRegistry}.
+   */
+  /*package*/ void setRegistration(@Nullable String scope, @Nullable String id) {
+    mRegistrationScope = scope;
+    mRegistrationId = id;
+  }
+
+  /*package*/ @Nullable String getRegistrationScope() {
+    return mRegistrationScope;
+  }
+
+  /*package*/ @Nullable String getRegistrationId() {
+    return mRegistrationId;
+  }
+
+  /*package*/ @Nullable SecureTextInputManager.BulkInsert getBulkInsert() {
+    return mBulkInsert;
+  }
+
+  /*package*/ void setBulkInsert(@Nullable SecureTextInputManager.BulkInsert bulkInsert) {
+    final boolean finished = mBulkInsert != null && bulkInsert == null;
+    mBulkInsert = bulkInsert;
+    if (finished) {
+      onContentSizeChange();
+    }
+  }
+
+  /**
+   * Sets {@code text} on the view. A long text in an unfocused multiline view is laid out on a
+   * background thread first, see {@link SecureLayoutWarmer}, and set once that is done. What is set
+   * then is the content of {@code text} at that time, so it must be the registry value itself.
+   */
+  /*package*/ void loadText(CharSequence text) {
+    mLoadGeneration++;
+    mPendingLoad = null;
+    final int width = getWidth() - getCompoundPaddingLeft() - getCompoundPaddingRight();
+    if (text.length() < WARM_LAYOUT_THRESHOLD || !isMultiline() || hasFocus() || width <= 0) {
+      setLoadedText(text);
+      return;
+    }
+
+    // The background thread gets its own copy, which it wipes, so the registry value is only ever
+    // read on the UI thread
+    final char[] chars = new char[text.length()];
+    TextUtils.getChars(text, 0, chars.length, chars, 0);
+    final int generation = mLoadGeneration;
+    mPendingLoad = text;
+    SecureLayoutWarmer.warm(
+        chars,
+        chars.length,
+        new TextPaint(getPaint()),
+        width,
+        getLineSpacingMultiplier(),
+        getLineSpacingExtra(),
+        new Runnable() {
+          @Override
+          public void run() {
+            if (generation == mLoadGeneration) {
+              finishLoad();
+            }
+          }
+        });
+  }
+
+  /**
+   * Sets a pending load right away.
+   */
+  /*package*/ void finishLoad() {
+    final CharSequence text = mPendingLoad;
+    if (text != null) {
+      mPendingLoad = null;
+      setLoadedText(text);
+    }
+  }
+
+  // The text watcher ignores a load: the value is already in the registry, and seeing it as an
+  // edit would put a copy of it in the edit history. The separators are put in place here instead.
+  private void setLoadedText(CharSequence text) {
+    mIsLoading = true;
+    try {
+      setText(text);
+      if (mFormatter != null) {
+        mIsFormatting = true;
+        try {
+          mFormatter.format(getText(), 0, getText().length());
+        } finally {
+          mIsFormatting = false;
+        }
+      }
+    } finally {
+      mIsLoading = false;
+    }
+  }
+
+  /*package*/ boolean isLoading() {
+    return mIsLoading;
+  }
+
+  /*package*/ void cancelLoad() {
+    mLoadGeneration++;
+    mPendingLoad = null;
+  }
+
+  @Override
+  protected void onFocusChanged(boolean focused, int direction, Rect previouslyFocusedRect) {
+    // The view must be up to date before it can be edited
+    if (focused) {
+      finishLoad();
+    } else {
+      hideKeypad();
+    }
+    super.onFocusChanged(focused, direction, previouslyFocusedRect);
+  }
+
+  /*package*/ void setGroup(@Nullable String groupId) {
+    mGroupId = groupId;
+    mGroupChanged = true;
+  }
+
+  /*package*/ @Nullable String getGroup() {
+    return mGroupId;
+  }
+
+  /*package*/ void setGroupIndex(int groupIndex) {
+    mGroupIndex = groupIndex;
+    mGroupChanged = true;
+  }
+
+  /*package*/ int getGroupIndex() {
+    return mGroupIndex;
+  }
+
+  /*package*/ void invalidateGroup() {
+    mGroupChanged = true;
+  }
+
+  /**
+   * Returns whether the group or the registry entry of this view changed since the last call.
+   */
+  /*package*/ boolean takeGroupChanged() {
+    final boolean changed = mGroupChanged;
+    mGroupChanged = false;
+    return changed;
+  }
+
+  /*package*/ void setMatchRegistrationId(@Nullable String id) {
+    mMatchRegistrationId = id;
+  }
+
+  /*package*/ @Nullable String getMatchRegistrationId() {
+    return mMatchRegistrationId;
+  }
+
+  /*package*/ void setMatchTargetId(@Nullable String id) {
+    mMatchTargetId = id;
+  }
+
+  /*package*/ @Nullable String getMatchTargetId() {
+    return mMatchTargetId;
+  }
+
+  /*package*/ void setMatch(@Nullable SecureMatch match) {
+    mMatch = match;
+  }
+
+  /*package*/ @Nullable SecureMatch getMatch() {
+    return mMatch;
+  }
+
+  /*package*/ void setTraceRecorder(@Nullable SecureEditTrace.Recorder recorder) {
+    mTraceRecorder = recorder;
+  }
+
+  /*package*/ @Nullable SecureEditTrace.Recorder getTraceRecorder() {
+    return mTraceRecorder;
+  }
+
+  /*package*/ void setStrengthEnabled(boolean enabled) {
+    mStrengthEnabled = enabled;
+  }
+
+  /*package*/ boolean isStrengthEnabled() {
+    return mStrengthEnabled;
+  }
+
+  /*package*/ void setStrength(@Nullable SecureStrengthEstimator strength) {
+    mStrength = strength;
+  }
+
+  /*package*/ @Nullable SecureStrengthEstimator getStrength() {
+    return mStrength;
+  }
+
+  /*package*/ void setAddressEnabled(boolean enabled) {
+    mAddressEnabled = enabled;
+  }
+
+  /*package*/ boolean isAddressEnabled() {
+    return mAddressEnabled;
+  }
+
+  /*package*/ void setAddress(@Nullable SecureAddressChecker address) {
+    mAddress = address;
+  }
+
+  /*package*/ @Nullable SecureAddressChecker getAddress() {
+    return mAddress;
+  }
+
+  /*package*/ void setRetentionTtl(int ttlMs) {
+    mRetentionTtlChanged |= ttlMs != mRetentionTtl;
+    mRetentionTtl = ttlMs;
+  }
+
+  /*package*/ int getRetentionTtl() {
+    return mRetentionTtl;
+  }
+
+  /*package*/ boolean takeRetentionTtlChanged() {
+    final boolean changed = mRetentionTtlChanged;
+    mRetentionTtlChanged = false;
+    return changed;
+  }
+
+  /*package*/ void setPendingValidators(@Nullable List<SecureValidator> validators) {
+    mPendingValidators = validators;
+  }
+
+  /*package*/ @Nullable List<SecureValidator> takePendingValidators() {
+    final List<SecureValidator> validators = mPendingValidators;
+    mPendingValidators = null;
+    return validators;
+  }
+
   /*protected*/ int getStagedInputType() {
     return mStagedInputType;
   }
@@ -294,17 +716,85 @@ public class SecureEditText extends EditText {
   }
 
   private boolean showSoftKeyboard() {
+    if (mKeypadEnabled) {
+      showKeypad();
+      return true;
+    }
     return mInputMethodManager.showSoftInput(this, 0);
   }
 
   private void hideSoftKeyboard() {
+    hideKeypad();
     mInputMethodManager.hideSoftInputFromWindow(getWindowToken(), 0);
   }
 
+  /**
+   * Enables the in-app keypad instead of the system IME.
+   */
+  /*package*/ void setKeypadEnabled(boolean enabled) {
+    if (enabled == mKeypadEnabled) {
+      return;
+    }
+    mKeypadEnabled = enabled;
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+      setShowSoftInputOnFocus(!enabled);
+    }
+    if (!isFocused()) {
+      return;
+    }
+    if (enabled) {
+      mInputMethodManager.hideSoftInputFromWindow(getWindowToken(), 0);
+      showKeypad();
+    } else {
+      hideKeypad();
+      mInputMethodManager.showSoftInput(this, 0);
+    }
+  }
+
+  private void showKeypad() {
+    if (mKeypadPopup == null) {
+      mKeypadPopup = SecureKeypadView.createPopup(getContext(), new SecureKeypadView.Listener() {
+        @Override
+        public void onDigit(int digit) {
+          replaceSelection(DIGITS[digit]);
+        }
+
+        @Override
+        public void onDelete() {
+          final int start = Math.min(getSelectionStart(), getSelectionEnd());
+          final int end = Math.max(getSelectionStart(), getSelectionEnd());
+          if (start != end) {
+            getText().delete(Math.max(start, 0), end);
+          } else if (start > 0) {
+            getText().delete(start - 1, start);
+          }
+        }
+      });
+    }
+    SecureKeypadView.showPopup(mKeypadPopup, this);
+  }
+
+  private void hideKeypad() {
+    if (mKeypadPopup != null && mKeypadPopup.isShowing()) {
+      mKeypadPopup.dismiss();
+    }
+  }
+
+  // Keys typed on the keypad are edits of the view like any other, so they reach the registry
+  // through the text watcher, and go through the formatter, the filters and the history
+  private void replaceSelection(CharSequence text) {
+    final int start = Math.max(Math.min(getSelectionStart(), getSelectionEnd()), 0);
+    final int end = Math.max(Math.max(getSelectionStart(), getSelectionEnd()), 0);
+    getText().replace(start, end, text);
+  }
+
   @Override
   public void onDetachedFromWindow() {
     super.onDetachedFromWindow();
 
+    closeBatchEdit();
+    cancelLoad();
+    hideKeypad();
     this.mManager.onDetachedFromWindow(this);
   }
 
@@ -356,6 +846,38 @@ public class SecureEditText extends EditText {
     }
   }
 
+  /**
+   * Tracks the batch edits of the IME. The several changes an IME makes for one user action, e.g.
+   * finishing a composed word and inserting a space, reach the registry and the layout as one.
+   */
+  private class BatchEditInputConnection extends InputConnectionWrapper {
+
+    BatchEditInputConnection(InputConnection target) {
+      super(target, false);
+    }
+
+    @Override
+    public boolean beginBatchEdit() {
+      mBatchEditDepth++;
+      return super.beginBatchEdit();
+    }
+
+    @Override
+    public boolean endBatchEdit() {
+      final boolean result = super.endBatchEdit();
+      if (mBatchEditDepth > 0 && --mBatchEditDepth == 0) {
+        onBatchEditEnded();
+      }
+      return result;
+    }
+
+    @Override
+    public void closeConnection() {
+      super.closeConnection();
+      closeBatchEdit();
+    }
+  }
+
   /*
    * This class is set as the KeyListener for the underlying TextView
    * It does two things
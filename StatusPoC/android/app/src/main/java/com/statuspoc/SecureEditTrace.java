@@ -0,0 +1,230 @@
+package com.statuspoc;
+
+import android.text.Editable;
+import java.util.Arrays;
+
+/**
+ * Traces of the edits made to a secure field, for benchmarks: when each edit happened, where, and
+ * how many chars it removed and inserted, but never which chars.
+ *
+ * A trace starts with {@link #MAGIC} and {@link #VERSION}, followed by one record per edit. A
+ * record is 4 unsigned LEB128 varints: the milliseconds since the previous edit (or since the
+ * recording started), the start of the edit, the number of chars removed and the number inserted.
+ * Typing a char takes 4 to 6 bytes.
+ *
+ * Replaying a trace inserts synthetic chars in place of the real ones, so a benchmark reproduces
+ * the shape of real typing, including bursts, corrections and pastes, without any real content.
+ */
+final class SecureEditTrace {
+
+  static final byte[] MAGIC = {'S', 'E', 'T'};
+  static final byte VERSION = 1;
+  // Edits past this size are not recorded, the trace only grows while typing otherwise
+  private static final int MAX_SIZE = 1 << 20;
+
+  private SecureEditTrace() {
+  }
+
+  /**
+   * Records the edits of a field. Only used on the UI thread.
+   */
+  static final class Recorder {
+    private final long mStartTime;
+    private long mLastTime;
+    private byte[] mBytes = new byte[64];
+    private int mSize;
+    private int mEditCount;
+
+    Recorder(long uptimeMs) {
+      mStartTime = uptimeMs;
+      mLastTime = uptimeMs;
+      System.arraycopy(MAGIC, 0, mBytes, 0, MAGIC.length);
+      mBytes[MAGIC.length] = VERSION;
+      mSize = MAGIC.length + 1;
+    }
+
+    void record(long uptimeMs, int start, int before, int count) {
+      if (mSize > MAX_SIZE) {
+        return;
+      }
+
+      writeVarint(Math.max(0, uptimeMs - mLastTime));
+      writeVarint(start);
+      writeVarint(before);
+      writeVarint(count);
+      mLastTime = uptimeMs;
+      mEditCount++;
+    }
+
+    int getEditCount() {
+      return mEditCount;
+    }
+
+    long getDuration() {
+      return mLastTime - mStartTime;
+    }
+
+    byte[] toByteArray() {
+      return Arrays.copyOf(mBytes, mSize);
+    }
+
+    private void writeVarint(long value) {
+      if (mSize + 10 > mBytes.length) {
+        mBytes = Arrays.copyOf(mBytes, mBytes.length * 2);
+      }
+      while ((value & ~0x7fL) != 0) {
+        mBytes[mSize++] = (byte) ((value & 0x7f) | 0x80);
+        value >>>= 7;
+      }
+      mBytes[mSize++] = (byte) value;
+    }
+  }
+
+  /**
+   * What a trace is replayed into.
+   */
+  interface Target {
+    int length();
+
+    /**
+     * Replaces {@code before} chars at {@code start} with {@code text}. {@code time} is the time
+     * of the edit in milliseconds since the start of the trace, for targets that pace the replay.
+     */
+    void replace(long time, int start, int before, CharSequence text);
+  }
+
+  /**
+   * Replays into the registry entry directly, e.g. off-device.
+   */
+  static Target forField(final SecureField field) {
+    return new Target() {
+      @Override
+      public int length() {
+        return field.getValue().length();
+      }
+
+      @Override
+      public void replace(long time, int start, int before, CharSequence text) {
+        field.replace(start, before, text, 0, text.length());
+      }
+    };
+  }
+
+  /**
+   * Replays into the text of a view, so the edits go through its text watcher like typing.
+   */
+  static Target forEditable(final Editable editable) {
+    return new Target() {
+      @Override
+      public int length() {
+        return editable.length();
+      }
+
+      @Override
+      public void replace(long time, int start, int before, CharSequence text) {
+        editable.replace(start, start + before, text);
+      }
+    };
+  }
+
+  /**
+   * Replays a trace into {@code target}. Edits are clamped to the length of the target, as its
+   * initial content may differ from the one of the recorded field. Returns the number of edits
+   * replayed.
+   */
+  static int replay(byte[] trace, Target target) {
+    if (trace.length < MAGIC.length + 1
+        || trace[0] != MAGIC[0]
+        || trace[1] != MAGIC[1]
+        || trace[2] != MAGIC[2]) {
+      throw new IllegalArgumentException("trace: not an edit trace");
+    }
+    if (trace[MAGIC.length] != VERSION) {
+      throw new IllegalArgumentException("trace: unsupported version " + trace[MAGIC.length]);
+    }
+
+    final Reader reader = new Reader(trace, MAGIC.length + 1);
+    final SyntheticText text = new SyntheticText();
+    long time = 0;
+    int edits = 0;
+    while (reader.hasMore()) {
+      time += reader.readVarint();
+      final int length = target.length();
+      final int start = (int) Math.min(reader.readVarint(), length);
+      final int before = (int) Math.min(reader.readVarint(), length - start);
+      text.set(start, (int) Math.min(reader.readVarint(), Integer.MAX_VALUE));
+      target.replace(time, start, before, text);
+      edits++;
+    }
+    return edits;
+  }
+
+  private static final class Reader {
+    private final byte[] mBytes;
+    private int mPosition;
+
+    Reader(byte[] bytes, int position) {
+      mBytes = bytes;
+      mPosition = position;
+    }
+
+    boolean hasMore() {
+      return mPosition < mBytes.length;
+    }
+
+    long readVarint() {
+      long value = 0;
+      for (int shift = 0; shift < 64; shift += 7) {
+        if (mPosition == mBytes.length) {
+          throw new IllegalArgumentException("trace: truncated record");
+        }
+        final byte b = mBytes[mPosition++];
+        value |= (long) (b & 0x7f) << shift;
+        if ((b & 0x80) == 0) {
+          return value;
+        }
+      }
+      throw new IllegalArgumentException("trace: malformed varint");
+    }
+  }
+
+  /**
+   * Lowercase letters standing for the inserted chars, varying with their position so that
+   * replayed values are not just repeats. Reused for every edit of a replay.
+   */
+  private static final class SyntheticText implements CharSequence {
+    private int mOffset;
+    private int mLength;
+
+    void set(int offset, int length) {
+      mOffset = offset;
+      mLength = length;
+    }
+
+    @Override
+    public int length() {
+      return mLength;
+    }
+
+    @Override
+    public char charAt(int index) {
+      return (char) ('a' + (mOffset + index) % 26);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+      final SyntheticText sub = new SyntheticText();
+      sub.set(mOffset + start, end - start);
+      return sub;
+    }
+
+    @Override
+    public String toString() {
+      final char[] chars = new char[mLength];
+      for (int i = 0; i < mLength; i++) {
+        chars[i] = charAt(i);
+      }
+      return new String(chars);
+    }
+  }
+}
@@ -0,0 +1,250 @@
+package com.statuspoc;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * The registry entry for a single registration ID: the secure value itself plus the state that is
+ * kept up to date from the edits applied to it.
+ *
+ * Edits are applied as deltas, and every {@link EditListener} sees the value both before and after
+ * each of them, so derived state can be maintained in O(delta) without re-reading the whole value.
+ */
+final class SecureField {
+
+  interface EditListener {
+    /**
+     * Called before {@code before} chars at {@code start} are replaced. {@code value} still holds
+     * the chars that are about to be removed.
+     */
+    void onBeforeReplace(SecureBuffer value, int start, int before);
+
+    /**
+     * Called after the replacement, with the {@code count} inserted chars at {@code start}.
+     */
+    void onAfterReplace(SecureBuffer value, int start, int count);
+  }
+
+  private final SecureArena mArena;
+  private final SecureBuffer mValue;
+  private final SecureEditHistory mHistory;
+  private final ArrayList<EditListener> mListeners = new ArrayList<EditListener>();
+  private final SecureEditHistory.Editor mEditor = new SecureEditHistory.Editor() {
+    @Override
+    public void replace(int start, int end, CharSequence text) {
+      SecureField.this.replace(start, end - start, text, 0, text.length());
+    }
+  };
+
+  // Wipes the state derived from the value when the arena is released without wiping the field
+  private final SecureArena.Dependent mDerivedState = new SecureArena.Dependent() {
+    @Override
+    public void onArenaReleased() {
+      dropDigest();
+      for (int i = 0; i < mValidators.size(); i++) {
+        mValidators.get(i).reset();
+      }
+    }
+  };
+  private boolean mHasDerivedState;
+
+  private @Nullable SecureRetention.Node mRetentionNode;
+  // Only maintained once someone asked for it
+  private @Nullable SecureDigest mDigest;
+
+  private final ArrayList<SecureValidator> mValidators = new ArrayList<SecureValidator>();
+  // Bit i is set while validator i fails, as of the last call to updateVerdict()
+  private long mFailedValidators;
+
+  /**
+   * Creates a field with an arena of its own.
+   */
+  SecureField() {
+    this(new SecureArena());
+  }
+
+  /**
+   * Creates a field that keeps its chars in {@code arena}, see {@link SecureArena}.
+   */
+  SecureField(SecureArena arena) {
+    mArena = arena;
+    mValue = new SecureBuffer(arena);
+    mHistory = new SecureEditHistory(arena);
+    mListeners.add(mHistory);
+  }
+
+  SecureBuffer getValue() {
+    return mValue;
+  }
+
+  SecureEditHistory getHistory() {
+    return mHistory;
+  }
+
+  @Nullable SecureRetention.Node getRetentionNode() {
+    return mRetentionNode;
+  }
+
+  void setRetentionNode(@Nullable SecureRetention.Node node) {
+    mRetentionNode = node;
+  }
+
+  /**
+   * Writes the content digest of the value, see {@link SecureDigest}, to {@code out} at
+   * {@code offset}. The first call builds the digest, which is then kept up to date from the edits
+   * of the field.
+   */
+  void getDigest(byte[] out, int offset) {
+    if (mDigest == null) {
+      mDigest = new SecureDigest(mValue);
+      mListeners.add(mDigest);
+      addDerivedState();
+    }
+    mDigest.getDigest(mValue, out, offset);
+  }
+
+  /**
+   * Drops the digest, which is rebuilt on the next call to getDigest(). Returns the number of
+   * bytes released.
+   */
+  int dropDigest() {
+    if (mDigest == null) {
+      return 0;
+    }
+
+    final int released = mDigest.getBytes();
+    mListeners.remove(mDigest);
+    mDigest.wipe();
+    mDigest = null;
+    return released;
+  }
+
+  void addEditListener(EditListener listener) {
+    mListeners.add(listener);
+  }
+
+  void removeEditListener(EditListener listener) {
+    mListeners.remove(listener);
+  }
+
+  void replace(int start, int before, CharSequence source, int sourceStart, int count) {
+    for (int i = 0; i < mListeners.size(); i++) {
+      mListeners.get(i).onBeforeReplace(mValue, start, before);
+    }
+    mValue.replace(start, before, source, sourceStart, count);
+    for (int i = 0; i < mListeners.size(); i++) {
+      mListeners.get(i).onAfterReplace(mValue, start, count);
+    }
+  }
+
+  /**
+   * Replaces the validators of this field and brings them up to date with the current value.
+   */
+  void setValidators(List<SecureValidator> validators) {
+    if (validators.size() > Long.SIZE) {
+      throw new IllegalArgumentException("validators: at most " + Long.SIZE + " are supported");
+    }
+
+    for (int i = 0; i < mValidators.size(); i++) {
+      mListeners.remove(mValidators.get(i));
+      mValidators.get(i).reset();
+    }
+    mValidators.clear();
+    mValidators.addAll(validators);
+    for (int i = 0; i < mValidators.size(); i++) {
+      final SecureValidator validator = mValidators.get(i);
+      validator.reset();
+      validator.onAfterReplace(mValue, 0, mValue.length());
+      mListeners.add(validator);
+    }
+    mFailedValidators = 0;
+    if (!mValidators.isEmpty()) {
+      addDerivedState();
+    }
+  }
+
+  private void addDerivedState() {
+    if (!mHasDerivedState) {
+      mHasDerivedState = true;
+      mArena.addDependent(mDerivedState);
+    }
+  }
+
+  /**
+   * Recomputes which validators fail. Returns true if that changed since the last call.
+   */
+  boolean updateVerdict() {
+    long failed = 0;
+    for (int i = 0; i < mValidators.size(); i++) {
+      if (!mValidators.get(i).isValid()) {
+        failed |= 1L << i;
+      }
+    }
+    final boolean changed = failed != mFailedValidators;
+    mFailedValidators = failed;
+    return changed;
+  }
+
+  boolean isValid() {
+    return mFailedValidators == 0;
+  }
+
+  /**
+   * Returns whether all validators pass for the current value, without waiting for
+   * updateVerdict().
+   */
+  boolean passesValidators() {
+    for (int i = 0; i < mValidators.size(); i++) {
+      if (!mValidators.get(i).isValid()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the specs of the validators that failed as of the last call to updateVerdict().
+   */
+  String[] getFailedValidators() {
+    final String[] failed = new String[Long.bitCount(mFailedValidators)];
+    int next = 0;
+    for (int i = 0; i < mValidators.size(); i++) {
+      if ((mFailedValidators & (1L << i)) != 0) {
+        failed[next++] = mValidators.get(i).getSpec();
+      }
+    }
+    return failed;
+  }
+
+  /**
+   * Returns an editor that replays undo/redo directly on the value, for when no view is attached.
+   */
+  SecureEditHistory.Editor getEditor() {
+    return mEditor;
+  }
+
+  /**
+   * Replaces the whole value. Programmatic loads are not undoable, so the history is reset.
+   */
+  void setValue(CharSequence value) {
+    replace(0, mValue.length(), value, 0, value.length());
+    mHistory.clear();
+  }
+
+  /**
+   * Empties the field and gives its chars back to the arena. The field can't be edited afterwards.
+   */
+  void wipe() {
+    // Not recorded, the deleted chars would be copied into the undo ring only to be zeroed
+    mListeners.remove(mHistory);
+    mHistory.release();
+    replace(0, mValue.length(), "", 0, 0);
+    mValue.release();
+    dropDigest();
+    if (mHasDerivedState) {
+      mHasDerivedState = false;
+      mArena.removeDependent(mDerivedState);
+    }
+  }
+}
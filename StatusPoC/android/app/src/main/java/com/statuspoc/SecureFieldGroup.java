@@ -0,0 +1,266 @@
+package com.statuspoc;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.text.GetChars;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Secure fields declared with the same {@code groupID}, e.g. the words of a recovery phrase.
+ *
+ * The group is a read-only view of its members joined by spaces, in {@code groupIndex} order. It
+ * never copies the values: member lengths are tracked from their edits, and a char is looked up by
+ * a binary search over the member offsets, which are only recomputed from the first member that
+ * changed. Listeners are notified once per burst of edits, after all the edits of the burst have
+ * been applied to the members.
+ */
+final class SecureFieldGroup implements CharSequence, GetChars {
+
+  interface Listener {
+    /**
+     * Called after members of {@code group} changed. {@code memberId} is the registration ID of
+     * the last one that did.
+     */
+    void onGroupChanged(SecureFieldGroup group, String memberId);
+  }
+
+  private static final char SEPARATOR = ' ';
+
+  private final String mId;
+  // Sorted by index
+  private final ArrayList<Member> mMembers = new ArrayList<Member>();
+  // Offsets of the members before this one are up to date
+  private int mValidOffsets;
+  private final ArrayList<Listener> mListeners = new ArrayList<Listener>();
+  private final Handler mHandler = new Handler(Looper.getMainLooper());
+  private String mChangedMemberId;
+  private final Runnable mNotifyListeners = new Runnable() {
+    @Override
+    public void run() {
+      final String memberId = mChangedMemberId;
+      mChangedMemberId = null;
+      if (memberId == null) {
+        return;
+      }
+      for (int i = 0; i < mListeners.size(); i++) {
+        mListeners.get(i).onGroupChanged(SecureFieldGroup.this, memberId);
+      }
+    }
+  };
+
+  private class Member implements SecureField.EditListener {
+    final String id;
+    final int index;
+    final SecureField field;
+    int offset;
+
+    Member(String id, int index, SecureField field) {
+      this.id = id;
+      this.index = index;
+      this.field = field;
+    }
+
+    int length() {
+      return field.getValue().length();
+    }
+
+    @Override
+    public void onBeforeReplace(SecureBuffer value, int start, int before) {
+    }
+
+    @Override
+    public void onAfterReplace(SecureBuffer value, int start, int count) {
+      onMemberChanged(this);
+    }
+  }
+
+  SecureFieldGroup(String id) {
+    mId = id;
+  }
+
+  String getId() {
+    return mId;
+  }
+
+  void addListener(Listener listener) {
+    mListeners.add(listener);
+  }
+
+  void removeListener(Listener listener) {
+    mListeners.remove(listener);
+  }
+
+  /**
+   * Adds a member at {@code index}, replacing any other member with the same index.
+   */
+  void add(String id, int index, SecureField field) {
+    remove(field);
+    int position = 0;
+    while (position < mMembers.size() && mMembers.get(position).index < index) {
+      position++;
+    }
+    if (position < mMembers.size() && mMembers.get(position).index == index) {
+      removeAt(position);
+    }
+
+    final Member member = new Member(id, index, field);
+    mMembers.add(position, member);
+    field.addEditListener(member);
+    invalidateOffsets(position);
+    onMemberChanged(member);
+  }
+
+  /**
+   * Removes {@code field} from the group. Returns false if it was not a member.
+   */
+  boolean remove(SecureField field) {
+    for (int i = 0; i < mMembers.size(); i++) {
+      if (mMembers.get(i).field == field) {
+        final Member member = mMembers.get(i);
+        removeAt(i);
+        onMemberChanged(member);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void removeAt(int position) {
+    final Member member = mMembers.remove(position);
+    member.field.removeEditListener(member);
+    invalidateOffsets(position);
+  }
+
+  boolean isEmpty() {
+    return mMembers.isEmpty();
+  }
+
+  int getMemberCount() {
+    return mMembers.size();
+  }
+
+  String getMemberId(int position) {
+    return mMembers.get(position).id;
+  }
+
+  /**
+   * Returns the number of members that are not empty.
+   */
+  int getFilledCount() {
+    int filled = 0;
+    for (int i = 0; i < mMembers.size(); i++) {
+      if (mMembers.get(i).length() > 0) {
+        filled++;
+      }
+    }
+    return filled;
+  }
+
+  /**
+   * Returns whether the validators of every member pass for its current value.
+   */
+  boolean isValid() {
+    for (int i = 0; i < mMembers.size(); i++) {
+      if (!mMembers.get(i).field.passesValidators()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void onMemberChanged(Member member) {
+    final int position = mMembers.indexOf(member);
+    if (position >= 0) {
+      invalidateOffsets(position + 1);
+    }
+    if (mChangedMemberId == null) {
+      mHandler.post(mNotifyListeners);
+    }
+    mChangedMemberId = member.id;
+  }
+
+  private void invalidateOffsets(int position) {
+    mValidOffsets = Math.min(mValidOffsets, position);
+  }
+
+  private void updateOffsets() {
+    for (int i = Math.max(mValidOffsets, 1); i < mMembers.size(); i++) {
+      final Member previous = mMembers.get(i - 1);
+      mMembers.get(i).offset = previous.offset + previous.length() + 1;
+    }
+    mValidOffsets = mMembers.size();
+  }
+
+  // Returns the position of the member that contains the char at index, or is followed by it
+  private int findMember(int index) {
+    updateOffsets();
+    int low = 0;
+    int high = mMembers.size() - 1;
+    while (low < high) {
+      final int middle = (low + high + 1) >>> 1;
+      if (mMembers.get(middle).offset <= index) {
+        low = middle;
+      } else {
+        high = middle - 1;
+      }
+    }
+    return low;
+  }
+
+  @Override
+  public int length() {
+    if (mMembers.isEmpty()) {
+      return 0;
+    }
+    updateOffsets();
+    final Member last = mMembers.get(mMembers.size() - 1);
+    return last.offset + last.length();
+  }
+
+  @Override
+  public char charAt(int index) {
+    if (index < 0 || index >= length()) {
+      throw new IndexOutOfBoundsException("index: " + index);
+    }
+    final Member member = mMembers.get(findMember(index));
+    final int inMember = index - member.offset;
+    return inMember < member.length() ? member.field.getValue().charAt(inMember) : SEPARATOR;
+  }
+
+  @Override
+  public void getChars(int start, int end, char[] dest, int destoff) {
+    if (start < 0 || start > end || end > length()) {
+      throw new IndexOutOfBoundsException("range: " + start + ", " + end);
+    }
+    int position = start;
+    for (int i = findMember(start); position < end; i++) {
+      final Member member = mMembers.get(i);
+      final int from = position - member.offset;
+      final int to = Math.min(member.length(), end - member.offset);
+      if (from < to) {
+        member.field.getValue().getChars(from, to, dest, destoff + position - start);
+        position += to - from;
+      }
+      if (position < end) {
+        dest[destoff + position - start] = SEPARATOR;
+        position++;
+      }
+    }
+  }
+
+  @Override
+  public CharSequence subSequence(int start, int end) {
+    final char[] chars = new char[end - start];
+    getChars(start, end, chars, 0);
+    final String result = new String(chars);
+    Arrays.fill(chars, '\0');
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return subSequence(0, length()).toString();
+  }
+}
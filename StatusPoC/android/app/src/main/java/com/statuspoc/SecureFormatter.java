@@ -0,0 +1,190 @@
+package com.statuspoc;
+
+import android.text.Editable;
+import android.text.GetChars;
+
+import java.util.Arrays;
+import javax.annotation.Nullable;
+
+/**
+ * Displays the value of a secure field in fixed-size groups, e.g. {@code "a1b2 c3d4 e5f6"}.
+ *
+ * The separators only exist in the view: the registry keeps the raw value, and edits are mapped
+ * between display and raw positions arithmetically. After an edit, separators are inserted and
+ * removed in place on the Editable, starting at the edited group and stopping as soon as the
+ * remaining groups are known to be in place, so typing does not re-format the whole field.
+ */
+final class SecureFormatter {
+
+  private final int mGroupSize;
+  private final char mSeparator;
+  private final String mSeparatorText;
+  private final RawChars mRawChars = new RawChars();
+
+  SecureFormatter(int groupSize, char separator) {
+    if (groupSize <= 0) {
+      throw new IllegalArgumentException("format: group size must be positive");
+    }
+    mGroupSize = groupSize;
+    mSeparator = separator;
+    mSeparatorText = String.valueOf(separator);
+  }
+
+  /**
+   * Parses the {@code format} prop: {@code "hex"} and {@code "card"} use groups of 4 separated by
+   * spaces, {@code "code"} groups of 3 separated by dashes, and {@code "groups:N"} groups of N
+   * separated by spaces. Returns null for no formatting.
+   */
+  static @Nullable SecureFormatter parse(@Nullable String format) {
+    if (format == null || format.equals("none")) {
+      return null;
+    }
+    switch (format) {
+      case "hex":
+      case "card":
+        return new SecureFormatter(4, ' ');
+      case "code":
+        return new SecureFormatter(3, '-');
+      default:
+        if (format.startsWith("groups:")) {
+          try {
+            return new SecureFormatter(Integer.parseInt(format.substring(7)), ' ');
+          } catch (NumberFormatException e) {
+            // Fall through
+          }
+        }
+        throw new IllegalArgumentException("format: " + format);
+    }
+  }
+
+  boolean isSeparator(char c) {
+    return c == mSeparator;
+  }
+
+  /**
+   * Maps a position between chars of the formatted text to the raw value.
+   */
+  int toRaw(int display) {
+    return display - display / (mGroupSize + 1);
+  }
+
+  /**
+   * Maps the position right before the raw char at {@code raw} to the formatted text.
+   */
+  int toDisplayStart(int raw) {
+    return raw + raw / mGroupSize;
+  }
+
+  /**
+   * Maps the position right after the raw char at {@code raw - 1} to the formatted text.
+   */
+  int toDisplayEnd(int raw) {
+    return raw == 0 ? 0 : toDisplayStart(raw - 1) + 1;
+  }
+
+  /**
+   * Returns the {@code count} chars at {@code start} without separators. The result is only valid
+   * until the next call, and must be released with {@link #wipeRawChars()}.
+   */
+  CharSequence rawChars(CharSequence text, int start, int count) {
+    mRawChars.set(text, start, count);
+    return mRawChars;
+  }
+
+  void wipeRawChars() {
+    mRawChars.wipe();
+  }
+
+  /**
+   * Puts the separators of {@code text} in place, assuming it was formatted up to {@code from} and
+   * after {@code editEnd}.
+   */
+  void format(Editable text, int from, int editEnd) {
+    int position = from - from % (mGroupSize + 1);
+    int inGroup = 0;
+    while (position < text.length()) {
+      final char c = text.charAt(position);
+      final boolean last = position + 1 == text.length();
+      if (c == mSeparator) {
+        if (inGroup == mGroupSize && !last) {
+          if (position >= editEnd) {
+            // An untouched separator where it belongs, the rest of the text is already formatted
+            return;
+          }
+          inGroup = 0;
+          position++;
+        } else {
+          text.delete(position, position + 1);
+          if (position < editEnd) {
+            editEnd--;
+          }
+        }
+        continue;
+      }
+
+      if (inGroup == mGroupSize) {
+        text.insert(position, mSeparatorText);
+        if (position < editEnd) {
+          editEnd++;
+        }
+        position++;
+        inGroup = 0;
+      }
+      inGroup++;
+      position++;
+    }
+  }
+
+  /**
+   * The non-separator chars of a range of the view's text, copied to a reusable scratch array so
+   * the registry can read them by index.
+   */
+  private class RawChars implements CharSequence, GetChars {
+    private char[] mChars = new char[16];
+    private int mLength;
+
+    void set(CharSequence text, int start, int count) {
+      if (count > mChars.length) {
+        wipe();
+        mChars = new char[Math.max(count, mChars.length * 2)];
+      }
+      mLength = 0;
+      for (int i = start; i < start + count; i++) {
+        final char c = text.charAt(i);
+        if (c != mSeparator) {
+          mChars[mLength++] = c;
+        }
+      }
+    }
+
+    void wipe() {
+      Arrays.fill(mChars, '\0');
+      mLength = 0;
+    }
+
+    @Override
+    public int length() {
+      return mLength;
+    }
+
+    @Override
+    public char charAt(int index) {
+      return mChars[index];
+    }
+
+    @Override
+    public void getChars(int start, int end, char[] dest, int destoff) {
+      System.arraycopy(mChars, start, dest, destoff, end - start);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+      return new String(mChars, start, end - start);
+    }
+
+    @Override
+    public String toString() {
+      return new String(mChars, 0, mLength);
+    }
+  }
+}
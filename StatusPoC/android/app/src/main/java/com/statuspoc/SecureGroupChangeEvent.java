@@ -0,0 +1,52 @@
+package com.statuspoc;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.uimanager.events.Event;
+import com.facebook.react.uimanager.events.RCTEventEmitter;
+
+/**
+ * Event emitted when the state of a secure field group changes: how many of its fields are filled
+ * in and whether they all pass their validators. It never carries any part of the values.
+ */
+public class SecureGroupChangeEvent extends Event<SecureGroupChangeEvent> {
+
+  public static final String EVENT_NAME = "topGroupChange";
+
+  private final String mGroupId;
+  private final int mFields;
+  private final int mFilled;
+  private final boolean mValid;
+
+  public SecureGroupChangeEvent(
+      int viewId,
+      String groupId,
+      int fields,
+      int filled,
+      boolean valid) {
+    super(viewId);
+    mGroupId = groupId;
+    mFields = fields;
+    mFilled = filled;
+    mValid = valid;
+  }
+
+  @Override
+  public String getEventName() {
+    return EVENT_NAME;
+  }
+
+  @Override
+  public void dispatch(RCTEventEmitter rctEventEmitter) {
+    rctEventEmitter.receiveEvent(getViewTag(), getEventName(), serializeEventData());
+  }
+
+  private WritableMap serializeEventData() {
+    WritableMap eventData = Arguments.createMap();
+    eventData.putString("groupID", mGroupId);
+    eventData.putInt("fields", mFields);
+    eventData.putInt("filled", mFilled);
+    eventData.putBoolean("valid", mValid);
+    return eventData;
+  }
+}
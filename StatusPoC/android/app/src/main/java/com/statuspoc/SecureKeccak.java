@@ -0,0 +1,118 @@
+package com.statuspoc;
+
+import java.util.Arrays;
+
+/**
+ * Keccak-256, as used by Ethereum. It differs from SHA3-256 by its padding, so the SHA3 digests of
+ * the platform, when there are any, can't be used.
+ *
+ * An instance keeps its state between calls and wipes it after each, so it can hash secret input
+ * repeatedly without allocating. Not thread safe.
+ */
+final class SecureKeccak {
+
+  static final int DIGEST_LENGTH = 32;
+
+  // 1600 - 2 * 256 bits, in bytes
+  private static final int RATE = 136;
+  private static final int ROUNDS = 24;
+
+  private static final long[] ROUND_CONSTANTS = {
+      0x0000000000000001L, 0x0000000000008082L, 0x800000000000808aL, 0x8000000080008000L,
+      0x000000000000808bL, 0x0000000080000001L, 0x8000000080008081L, 0x8000000000008009L,
+      0x000000000000008aL, 0x0000000000000088L, 0x0000000080008009L, 0x000000008000000aL,
+      0x000000008000808bL, 0x800000000000008bL, 0x8000000000008089L, 0x8000000000008003L,
+      0x8000000000008002L, 0x8000000000000080L, 0x000000000000800aL, 0x800000008000000aL,
+      0x8000000080008081L, 0x8000000000008080L, 0x0000000080000001L, 0x8000000080008008L,
+  };
+
+  // Rotation of each lane, by index x + 5 * y
+  private static final int[] ROTATIONS = {
+      0, 1, 62, 28, 27,
+      36, 44, 6, 55, 20,
+      3, 10, 43, 25, 39,
+      41, 45, 15, 21, 8,
+      18, 2, 61, 56, 14,
+  };
+
+  private final long[] mState = new long[25];
+  private final long[] mLanes = new long[25];
+  private final long[] mColumns = new long[5];
+  private final byte[] mBlock = new byte[RATE];
+
+  /**
+   * Writes the Keccak-256 digest of {@code length} bytes of {@code in} at {@code offset} to
+   * {@code out} at {@code outOffset}.
+   */
+  void digest(byte[] in, int offset, int length, byte[] out, int outOffset) {
+    int position = offset;
+    int remaining = length;
+    while (remaining >= RATE) {
+      absorb(in, position);
+      position += RATE;
+      remaining -= RATE;
+    }
+
+    // The last block is padded with 0x01, zeros and a final 0x80
+    System.arraycopy(in, position, mBlock, 0, remaining);
+    Arrays.fill(mBlock, remaining, RATE, (byte) 0);
+    mBlock[remaining] ^= 0x01;
+    mBlock[RATE - 1] ^= (byte) 0x80;
+    absorb(mBlock, 0);
+
+    for (int i = 0; i < DIGEST_LENGTH; i++) {
+      out[outOffset + i] = (byte) (mState[i / 8] >>> (8 * (i % 8)));
+    }
+    wipe();
+  }
+
+  private void absorb(byte[] block, int offset) {
+    for (int i = 0; i < RATE / 8; i++) {
+      long lane = 0;
+      for (int b = 7; b >= 0; b--) {
+        lane = (lane << 8) | (block[offset + 8 * i + b] & 0xff);
+      }
+      mState[i] ^= lane;
+    }
+    permute();
+  }
+
+  private void permute() {
+    final long[] a = mState;
+    final long[] b = mLanes;
+    final long[] c = mColumns;
+    for (int round = 0; round < ROUNDS; round++) {
+      // Theta
+      for (int x = 0; x < 5; x++) {
+        c[x] = a[x] ^ a[x + 5] ^ a[x + 10] ^ a[x + 15] ^ a[x + 20];
+      }
+      for (int x = 0; x < 5; x++) {
+        final long d = c[(x + 4) % 5] ^ Long.rotateLeft(c[(x + 1) % 5], 1);
+        for (int y = 0; y < 25; y += 5) {
+          a[x + y] ^= d;
+        }
+      }
+      // Rho and pi
+      for (int x = 0; x < 5; x++) {
+        for (int y = 0; y < 5; y++) {
+          b[y + 5 * ((2 * x + 3 * y) % 5)] = Long.rotateLeft(a[x + 5 * y], ROTATIONS[x + 5 * y]);
+        }
+      }
+      // Chi
+      for (int y = 0; y < 25; y += 5) {
+        for (int x = 0; x < 5; x++) {
+          a[x + y] = b[x + y] ^ (~b[(x + 1) % 5 + y] & b[(x + 2) % 5 + y]);
+        }
+      }
+      // Iota
+      a[0] ^= ROUND_CONSTANTS[round];
+    }
+  }
+
+  private void wipe() {
+    Arrays.fill(mState, 0);
+    Arrays.fill(mLanes, 0);
+    Arrays.fill(mColumns, 0);
+    Arrays.fill(mBlock, (byte) 0);
+  }
+}
@@ -0,0 +1,200 @@
+package com.statuspoc;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.util.SparseArray;
+import android.view.Gravity;
+import android.view.HapticFeedbackConstants;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.PopupWindow;
+import com.facebook.react.uimanager.PixelUtil;
+
+import javax.annotation.Nullable;
+
+/**
+ * A numeric keypad drawn by the app, so PIN entry doesn't have to wait for the system IME to show
+ * up, and no IME sees the digits.
+ *
+ * The keys are laid out in 4 rows of 3: 1 to 9, then an empty key, 0 and delete. Each key is
+ * rendered to a bitmap once per key size, and the bitmaps are shared by all keypads, so drawing the
+ * keypad is just copying them.
+ */
+final class SecureKeypadView extends View {
+
+  interface Listener {
+    void onDigit(int digit);
+
+    void onDelete();
+  }
+
+  private static final int ROWS = 4;
+  private static final int COLUMNS = 3;
+  private static final float KEY_HEIGHT_DP = 56;
+  private static final int KEY_COUNT = ROWS * COLUMNS;
+  private static final int KEY_NONE = 9;
+  private static final int KEY_DELETE = 11;
+  private static final String[] LABELS = {
+      "1", "2", "3", "4", "5", "6", "7", "8", "9", "", "0", "\u232B",
+  };
+  private static final int BACKGROUND_COLOR = 0xFFE8EAED;
+  // Drawn over the key, so its label stays visible
+  private static final int PRESSED_COLOR = 0x33000000;
+  private static final int TEXT_COLOR = 0xFF202124;
+
+  // By key size, (width << 16) | height. Only used on the UI thread.
+  private static final SparseArray<Bitmap[]> keyBitmaps = new SparseArray<Bitmap[]>();
+
+  private @Nullable Listener mListener;
+  private @Nullable Bitmap[] mKeys;
+  private int mKeyWidth;
+  private int mKeyHeight;
+  private int mPressedKey = -1;
+  private final Paint mPressedPaint = new Paint();
+
+  SecureKeypadView(Context context) {
+    super(context);
+    mPressedPaint.setColor(PRESSED_COLOR);
+  }
+
+  void setListener(@Nullable Listener listener) {
+    mListener = listener;
+  }
+
+  /**
+   * Creates a window showing a keypad at the bottom of the screen, with {@code listener} receiving
+   * its keys. The window doesn't take the focus from the view being edited.
+   */
+  static PopupWindow createPopup(Context context, Listener listener) {
+    final SecureKeypadView keypad = new SecureKeypadView(context);
+    keypad.setListener(listener);
+    final PopupWindow popup = new PopupWindow(
+        keypad,
+        ViewGroup.LayoutParams.MATCH_PARENT,
+        (int) PixelUtil.toPixelFromDIP(KEY_HEIGHT_DP * ROWS));
+    popup.setFocusable(false);
+    popup.setInputMethodMode(PopupWindow.INPUT_METHOD_NOT_NEEDED);
+    return popup;
+  }
+
+  static void showPopup(PopupWindow popup, View anchor) {
+    if (!popup.isShowing() && anchor.getWindowToken() != null) {
+      popup.showAtLocation(anchor.getRootView(), Gravity.BOTTOM, 0, 0);
+    }
+  }
+
+  @Override
+  protected void onSizeChanged(int width, int height, int oldWidth, int oldHeight) {
+    mKeyWidth = width / COLUMNS;
+    mKeyHeight = height / ROWS;
+    mKeys = mKeyWidth > 0 && mKeyHeight > 0 ? getKeyBitmaps(mKeyWidth, mKeyHeight) : null;
+  }
+
+  private static Bitmap[] getKeyBitmaps(int width, int height) {
+    final int size = (width << 16) | height;
+    Bitmap[] keys = keyBitmaps.get(size);
+    if (keys != null) {
+      return keys;
+    }
+
+    keys = new Bitmap[KEY_COUNT];
+    final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    paint.setColor(TEXT_COLOR);
+    paint.setTextAlign(Paint.Align.CENTER);
+    paint.setTextSize(height * 0.4f);
+    for (int i = 0; i < KEY_COUNT; i++) {
+      keys[i] = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+      final Canvas canvas = new Canvas(keys[i]);
+      canvas.drawColor(BACKGROUND_COLOR);
+      canvas.drawText(
+          LABELS[i],
+          width / 2f,
+          height / 2f - (paint.ascent() + paint.descent()) / 2,
+          paint);
+    }
+    // Only the latest size is kept, keypads of older ones are gone after a rotation
+    keyBitmaps.clear();
+    keyBitmaps.put(size, keys);
+    return keys;
+  }
+
+  @Override
+  protected void onDraw(Canvas canvas) {
+    if (mKeys == null) {
+      return;
+    }
+
+    canvas.drawColor(Color.WHITE);
+    for (int i = 0; i < KEY_COUNT; i++) {
+      final float left = (i % COLUMNS) * mKeyWidth;
+      final float top = (i / COLUMNS) * mKeyHeight;
+      canvas.drawBitmap(mKeys[i], left, top, null);
+      if (i == mPressedKey) {
+        canvas.drawRect(left, top, left + mKeyWidth, top + mKeyHeight, mPressedPaint);
+      }
+    }
+  }
+
+  @Override
+  public boolean onTouchEvent(MotionEvent event) {
+    final int key = keyAt(event.getX(), event.getY());
+    switch (event.getActionMasked()) {
+      case MotionEvent.ACTION_DOWN:
+        setPressedKey(key);
+        return true;
+      case MotionEvent.ACTION_MOVE:
+        if (key != mPressedKey) {
+          setPressedKey(-1);
+        }
+        return true;
+      case MotionEvent.ACTION_UP:
+        if (key == mPressedKey && key >= 0) {
+          onKey(key);
+        }
+        setPressedKey(-1);
+        return true;
+      case MotionEvent.ACTION_CANCEL:
+        setPressedKey(-1);
+        return true;
+      default:
+        return super.onTouchEvent(event);
+    }
+  }
+
+  private int keyAt(float x, float y) {
+    if (mKeyWidth == 0 || mKeyHeight == 0 || x < 0 || y < 0) {
+      return -1;
+    }
+    final int column = (int) (x / mKeyWidth);
+    final int row = (int) (y / mKeyHeight);
+    if (column >= COLUMNS || row >= ROWS) {
+      return -1;
+    }
+    final int key = row * COLUMNS + column;
+    return key != KEY_NONE ? key : -1;
+  }
+
+  private void setPressedKey(int key) {
+    if (key != mPressedKey) {
+      mPressedKey = key;
+      invalidate();
+    }
+  }
+
+  private void onKey(int key) {
+    performHapticFeedback(HapticFeedbackConstants.VIRTUAL_KEY);
+    if (mListener == null) {
+      return;
+    }
+    if (key == KEY_DELETE) {
+      mListener.onDelete();
+    } else {
+      // "0" sits after the empty key, the others are in order
+      mListener.onDigit(key == KEY_DELETE - 1 ? 0 : key + 1);
+    }
+  }
+}
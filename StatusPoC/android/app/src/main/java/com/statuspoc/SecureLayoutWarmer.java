@@ -0,0 +1,61 @@
+package com.statuspoc;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Lays out text on a background thread ahead of setting it on a view.
+ *
+ * PrecomputedText needs API 28 and can't be set on an EditText anyway, since the view copies its
+ * text into an Editable with its own layout. What makes that layout slow is measuring the words,
+ * and the platform caches those measurements process-wide. Laying out the same text with the same
+ * paint and width here fills that cache, so the layout built by the view on the UI thread is mostly
+ * made of cache hits.
+ */
+final class SecureLayoutWarmer {
+
+  private static final Executor executor = Executors.newSingleThreadExecutor();
+  private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+  private SecureLayoutWarmer() {
+  }
+
+  /**
+   * Lays out the first {@code length} chars of {@code chars}, then wipes them and posts
+   * {@code onWarmed} to the UI thread. {@code paint} must not be used by anything else afterwards.
+   */
+  static void warm(
+      final char[] chars,
+      final int length,
+      final TextPaint paint,
+      final int width,
+      final float spacingMultiplier,
+      final float spacingExtra,
+      final Runnable onWarmed) {
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          new StaticLayout(
+              CharBuffer.wrap(chars, 0, length),
+              paint,
+              width,
+              Layout.Alignment.ALIGN_NORMAL,
+              spacingMultiplier,
+              spacingExtra,
+              false);
+        } finally {
+          Arrays.fill(chars, '\0');
+          mainHandler.post(onWarmed);
+        }
+      }
+    });
+  }
+}
@@ -0,0 +1,99 @@
+package com.statuspoc;
+
+/**
+ * Tracks whether two secure fields hold the same value, e.g. a password and its confirmation.
+ *
+ * The number of positions where the values differ is kept up to date from the edits of either
+ * field, re-checking only the positions from the edit onwards. Typing or deleting at the end of a
+ * field is therefore O(delta); an edit in the middle re-checks the rest of the value. The result
+ * is only used as an indicator: a final decision should use {@link #verify()}, which compares the
+ * whole values in constant time.
+ */
+final class SecureMatch {
+
+  interface Listener {
+    void onMatchChanged(boolean matches);
+  }
+
+  private final SecureField mFirst;
+  private final SecureField mSecond;
+  private final Listener mListener;
+  private int mMismatches;
+  private boolean mMatches;
+
+  private final SecureField.EditListener mFirstListener = new SecureField.EditListener() {
+    @Override
+    public void onBeforeReplace(SecureBuffer value, int start, int before) {
+      mMismatches -= value.countMismatches(mSecond.getValue(), start);
+    }
+
+    @Override
+    public void onAfterReplace(SecureBuffer value, int start, int count) {
+      mMismatches += value.countMismatches(mSecond.getValue(), start);
+      update();
+    }
+  };
+
+  private final SecureField.EditListener mSecondListener = new SecureField.EditListener() {
+    @Override
+    public void onBeforeReplace(SecureBuffer value, int start, int before) {
+      mMismatches -= value.countMismatches(mFirst.getValue(), start);
+    }
+
+    @Override
+    public void onAfterReplace(SecureBuffer value, int start, int count) {
+      mMismatches += value.countMismatches(mFirst.getValue(), start);
+      update();
+    }
+  };
+
+  SecureMatch(SecureField first, SecureField second, Listener listener) {
+    if (first == second) {
+      throw new IllegalArgumentException("match: a field can't be matched with itself");
+    }
+
+    mFirst = first;
+    mSecond = second;
+    mListener = listener;
+    mMismatches = first.getValue().countMismatches(second.getValue(), 0);
+    mMatches = computeMatches();
+    first.addEditListener(mFirstListener);
+    second.addEditListener(mSecondListener);
+  }
+
+  SecureField getFirst() {
+    return mFirst;
+  }
+
+  SecureField getSecond() {
+    return mSecond;
+  }
+
+  boolean matches() {
+    return mMatches;
+  }
+
+  /**
+   * Compares both values in constant time.
+   */
+  boolean verify() {
+    return mFirst.getValue().constantTimeEquals(mSecond.getValue());
+  }
+
+  void close() {
+    mFirst.removeEditListener(mFirstListener);
+    mSecond.removeEditListener(mSecondListener);
+  }
+
+  private boolean computeMatches() {
+    return mMismatches == 0 && mFirst.getValue().length() == mSecond.getValue().length();
+  }
+
+  private void update() {
+    final boolean matches = computeMatches();
+    if (matches != mMatches) {
+      mMatches = matches;
+      mListener.onMatchChanged(matches);
+    }
+  }
+}
@@ -0,0 +1,38 @@
+package com.statuspoc;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.uimanager.events.Event;
+import com.facebook.react.uimanager.events.RCTEventEmitter;
+
+/**
+ * Event emitted when a secure field starts or stops matching the field it is compared to. It only
+ * carries that boolean.
+ */
+public class SecureMatchEvent extends Event<SecureMatchEvent> {
+
+  public static final String EVENT_NAME = "topMatchChange";
+
+  private final boolean mMatches;
+
+  public SecureMatchEvent(int viewId, boolean matches) {
+    super(viewId);
+    mMatches = matches;
+  }
+
+  @Override
+  public String getEventName() {
+    return EVENT_NAME;
+  }
+
+  @Override
+  public void dispatch(RCTEventEmitter rctEventEmitter) {
+    rctEventEmitter.receiveEvent(getViewTag(), getEventName(), serializeEventData());
+  }
+
+  private WritableMap serializeEventData() {
+    WritableMap eventData = Arguments.createMap();
+    eventData.putBoolean("matches", mMatches);
+    return eventData;
+  }
+}
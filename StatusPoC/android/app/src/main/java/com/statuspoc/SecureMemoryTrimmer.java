@@ -0,0 +1,123 @@
+package com.statuspoc;
+
+import android.content.ComponentCallbacks2;
+import android.content.res.Configuration;
+import android.util.SparseArray;
+
+import javax.annotation.Nullable;
+
+/**
+ * Releases memory held by the secure inputs when the system asks for it.
+ *
+ * Every trim level drops what can be rebuilt: digests and measurements. Levels that mean the
+ * process is short on memory also compact the buffers and drop the undo history of fields that are
+ * not on screen, then compact the arena of each scope. TRIM_MEMORY_RUNNING_CRITICAL is among
+ * them: the app is still in the foreground, and a named scope keeps its fields for a view that
+ * comes back. Only TRIM_MEMORY_COMPLETE and onLowMemory() wipe the values of those fields, as the
+ * process is about to be killed anyway. What each level released is kept in {@link Stats}.
+ */
+final class SecureMemoryTrimmer implements ComponentCallbacks2 {
+
+  private static final int RELEASE_CACHES = 1;
+  private static final int COMPACT = 2;
+  private static final int WIPE_DETACHED = 3;
+
+  /**
+   * What the trims of a given level released, since the process started.
+   */
+  static final class Stats {
+    private int mTrimCount;
+    private long mReleasedBytes;
+    private int mDroppedCacheEntries;
+    private int mWipedFields;
+
+    int getTrimCount() {
+      return mTrimCount;
+    }
+
+    long getReleasedBytes() {
+      return mReleasedBytes;
+    }
+
+    int getDroppedCacheEntries() {
+      return mDroppedCacheEntries;
+    }
+
+    int getWipedFields() {
+      return mWipedFields;
+    }
+  }
+
+  private final SecureRegistry mRegistry;
+  private final SparseArray<Stats> mStats = new SparseArray<Stats>();
+
+  SecureMemoryTrimmer(SecureRegistry registry) {
+    mRegistry = registry;
+  }
+
+  @Nullable Stats getStats(int level) {
+    return mStats.get(level);
+  }
+
+  private static int severity(int level) {
+    switch (level) {
+      case TRIM_MEMORY_COMPLETE:
+        return WIPE_DETACHED;
+      case TRIM_MEMORY_RUNNING_CRITICAL:
+      case TRIM_MEMORY_MODERATE:
+      case TRIM_MEMORY_RUNNING_LOW:
+      case TRIM_MEMORY_BACKGROUND:
+        return COMPACT;
+      default:
+        // Includes TRIM_MEMORY_UI_HIDDEN: the fields of a flow the user will come back to are kept
+        return RELEASE_CACHES;
+    }
+  }
+
+  @Override
+  public void onTrimMemory(int level) {
+    Stats stats = mStats.get(level);
+    if (stats == null) {
+      stats = new Stats();
+      mStats.put(level, stats);
+    }
+    stats.mTrimCount++;
+    final int severity = severity(level);
+
+    stats.mDroppedCacheEntries += SecureTextInputShadowNode.trimMeasureCache();
+    for (int i = 0; i < mRegistry.getScopeCount(); i++) {
+      final SecureRegistry.Scope scope = mRegistry.getScopeAt(i);
+      // Backwards, as fields can be removed
+      for (int j = scope.getFieldCount() - 1; j >= 0; j--) {
+        final String id = scope.getFieldIdAt(j);
+        final SecureField field = scope.getFieldAt(j);
+        stats.mReleasedBytes += field.dropDigest();
+        if (severity < COMPACT || scope.getView(id) != null) {
+          continue;
+        }
+
+        stats.mReleasedBytes += field.getHistory().release();
+        if (severity >= WIPE_DETACHED && field.getValue().length() > 0) {
+          // The whole slice of the value goes back to the arena, and is counted once it is compacted
+          scope.removeField(id);
+          stats.mWipedFields++;
+          continue;
+        }
+        field.getValue().trimToSize();
+      }
+      if (severity >= COMPACT) {
+        // What the fields gave back is only released once the arena is compacted
+        stats.mReleasedBytes += scope.getArena().trimToSize();
+      }
+    }
+  }
+
+  @Override
+  public void onLowMemory() {
+    onTrimMemory(TRIM_MEMORY_COMPLETE);
+  }
+
+  @Override
+  public void onConfigurationChanged(Configuration newConfig) {
+  }
+}
@@ -0,0 +1,545 @@
+package com.statuspoc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.TreeSet;
+
+/**
+ * A small regular expression engine for validating secure values one char at a time.
+ *
+ * The pattern is compiled to an NFA, which is turned into a DFA right away, so matching a char is
+ * a table lookup and the state after each position of the value can be kept by the caller. Only
+ * a subset of the usual syntax is supported: literals, {@code .}, char classes such as
+ * {@code [a-f0-9]} or {@code [^ ]}, the escapes {@code \d \w \s}, their negations and
+ * {@code \t \n \r \f}, grouping, {@code |}, the {@code * + ? {n} {n,} {n,m}} quantifiers and the
+ * {@code ^ $} anchors. The whole value has to match, and {@code .} matches any char.
+ *
+ * Patterns whose NFA or DFA would be too large, e.g. {@code (a|b)*a(a|b){20}}, are rejected
+ * rather than built.
+ */
+final class SecurePatternDfa {
+  static final int DEAD = 0;
+
+  private static final int ASCII = 128;
+  private static final int MAX_NODES = 4096;
+  // Entries of the transition table, i.e. 256KB
+  private static final int MAX_TRANSITIONS = 64 * 1024;
+  private static final int UNBOUNDED = -1;
+
+  private static final int NODE_CHARS = 0;
+  private static final int NODE_SPLIT = 1;
+  private static final int NODE_MATCH = 2;
+  private static final int NODE_BEGIN = 3;
+  private static final int NODE_END = 4;
+
+  private static class Node {
+    final int type;
+    // For NODE_CHARS: inclusive [from, to] pairs
+    char[] ranges;
+    Node out;
+    Node out1;
+    int index;
+
+    Node(int type) {
+      this.type = type;
+    }
+
+    boolean matches(char c) {
+      boolean found = false;
+      for (int i = 0; i < ranges.length && !found; i += 2) {
+        found = c >= ranges[i] && c <= ranges[i + 1];
+      }
+      return found;
+    }
+  }
+
+  private final String mPattern;
+  private int mPosition;
+  // Where parsing stops, moved while a repeated atom is parsed again
+  private int mEnd;
+  private final ArrayList<Node> mNodes = new ArrayList<Node>();
+
+  // No node tells the chars of a class apart: class i is [mBoundaries[i], mBoundaries[i + 1])
+  private final char[] mBoundaries;
+  private final int[] mAsciiClasses = new int[ASCII];
+  // Transitions by state and class
+  private final int[][] mTransitions;
+  private final boolean[] mAccepting;
+  private final int mInitialState;
+
+  SecurePatternDfa(String pattern) {
+    mPattern = pattern;
+    mPosition = 0;
+    mEnd = pattern.length();
+    final Fragment fragment = parseAlternation();
+    if (mPosition != mEnd) {
+      throw new IllegalArgumentException(
+          "pattern: unexpected '" + mPattern.charAt(mPosition) + "'");
+    }
+    fragment.patch(newNode(NODE_MATCH));
+
+    mBoundaries = classBoundaries();
+    for (char c = 0; c < ASCII; c++) {
+      mAsciiClasses[c] = classOf(c);
+    }
+
+    final Builder builder = new Builder();
+    // State 0 is the dead state, which no char can leave
+    builder.add(new BitSet(), false);
+    final BitSet initial = new BitSet();
+    addClosure(initial, fragment.start, true);
+    mInitialState = builder.add(initial, true);
+    for (int state = mInitialState; state < builder.mStates.size(); state++) {
+      builder.expand(state);
+    }
+    mTransitions = builder.mTransitions.toArray(new int[builder.mTransitions.size()][]);
+    mAccepting = new boolean[builder.mAccepting.size()];
+    for (int i = 0; i < mAccepting.length; i++) {
+      mAccepting[i] = builder.mAccepting.get(i);
+    }
+    mNodes.clear();
+  }
+
+  int getInitialState() {
+    return mInitialState;
+  }
+
+  boolean isAccepting(int state) {
+    return mAccepting[state];
+  }
+
+  int next(int state, char c) {
+    return mTransitions[state][c < ASCII ? mAsciiClasses[c] : classOf(c)];
+  }
+
+  private int classOf(char c) {
+    final int index = Arrays.binarySearch(mBoundaries, c);
+    return index >= 0 ? index : -index - 2;
+  }
+
+  private char[] classBoundaries() {
+    final TreeSet<Character> boundaries = new TreeSet<Character>();
+    boundaries.add((char) 0);
+    for (Node node : mNodes) {
+      if (node.type != NODE_CHARS) {
+        continue;
+      }
+      for (int i = 0; i < node.ranges.length; i += 2) {
+        boundaries.add(node.ranges[i]);
+        if (node.ranges[i + 1] < Character.MAX_VALUE) {
+          boundaries.add((char) (node.ranges[i + 1] + 1));
+        }
+      }
+    }
+    final char[] result = new char[boundaries.size()];
+    int i = 0;
+    for (char c : boundaries) {
+      result[i++] = c;
+    }
+    return result;
+  }
+
+  /**
+   * The subset construction, which only lives as long as the constructor.
+   */
+  private class Builder {
+    final ArrayList<BitSet> mStates = new ArrayList<BitSet>();
+    final HashMap<BitSet, Integer> mStateIds = new HashMap<BitSet, Integer>();
+    final ArrayList<int[]> mTransitions = new ArrayList<int[]>();
+    final ArrayList<Boolean> mAccepting = new ArrayList<Boolean>();
+
+    void expand(int state) {
+      final BitSet from = mStates.get(state);
+      final int[] transitions = mTransitions.get(state);
+      for (int charClass = 0; charClass < mBoundaries.length; charClass++) {
+        final char c = mBoundaries[charClass];
+        final BitSet to = new BitSet();
+        for (int i = from.nextSetBit(0); i >= 0; i = from.nextSetBit(i + 1)) {
+          final Node node = mNodes.get(i);
+          if (node.type == NODE_CHARS && node.matches(c)) {
+            addClosure(to, node.out, false);
+          }
+        }
+        final Integer id = mStateIds.get(to);
+        transitions[charClass] = id != null ? id : add(to, false);
+      }
+    }
+
+    int add(BitSet nodes, boolean initial) {
+      if ((mStates.size() + 1) * mBoundaries.length > MAX_TRANSITIONS) {
+        throw new IllegalArgumentException("pattern: too complex");
+      }
+      final int id = mStates.size();
+      mStates.add(nodes);
+      // Only the initial state lets ^ through, so it is never shared with a later one
+      if (!initial) {
+        mStateIds.put(nodes, id);
+      }
+      mTransitions.add(new int[mBoundaries.length]);
+      boolean accepting = false;
+      for (int i = nodes.nextSetBit(0); i >= 0 && !accepting; i = nodes.nextSetBit(i + 1)) {
+        final Node node = mNodes.get(i);
+        if (node.type == NODE_MATCH) {
+          accepting = true;
+        } else if (node.type == NODE_END) {
+          accepting = reachesMatchAtEnd(node.out, new BitSet(), initial);
+        }
+      }
+      mAccepting.add(accepting);
+      return id;
+    }
+  }
+
+  // Follows the edges that need no char. A $ is kept in the set and only passed once the value
+  // ends, and a ^ is only passed before the first char.
+  private void addClosure(BitSet set, Node node, boolean atStart) {
+    if (node == null || set.get(node.index)) {
+      return;
+    }
+    set.set(node.index);
+    if (node.type == NODE_SPLIT) {
+      addClosure(set, node.out, atStart);
+      addClosure(set, node.out1, atStart);
+    } else if (node.type == NODE_BEGIN && atStart) {
+      addClosure(set, node.out, atStart);
+    }
+  }
+
+  private boolean reachesMatchAtEnd(Node node, BitSet visited, boolean atStart) {
+    if (node == null || visited.get(node.index)) {
+      return false;
+    }
+    visited.set(node.index);
+    switch (node.type) {
+      case NODE_MATCH:
+        return true;
+      case NODE_SPLIT:
+        return reachesMatchAtEnd(node.out, visited, atStart)
+            || reachesMatchAtEnd(node.out1, visited, atStart);
+      case NODE_BEGIN:
+        return atStart && reachesMatchAtEnd(node.out, visited, atStart);
+      case NODE_END:
+        return reachesMatchAtEnd(node.out, visited, atStart);
+      default:
+        return false;
+    }
+  }
+
+  private Node newNode(int type) {
+    if (mNodes.size() == MAX_NODES) {
+      throw new IllegalArgumentException("pattern: too long");
+    }
+    final Node node = new Node(type);
+    node.index = mNodes.size();
+    mNodes.add(node);
+    return node;
+  }
+
+  /**
+   * A partially built piece of the NFA, with the nodes whose outgoing edges are still dangling.
+   */
+  private static class Fragment {
+    final Node start;
+    final ArrayList<Node> outs = new ArrayList<Node>();
+    final ArrayList<Node> outs1 = new ArrayList<Node>();
+
+    Fragment(Node start) {
+      this.start = start;
+    }
+
+    void patch(Node target) {
+      for (Node node : outs) {
+        node.out = target;
+      }
+      for (Node node : outs1) {
+        node.out1 = target;
+      }
+    }
+
+    void danglingFrom(Fragment other) {
+      outs.addAll(other.outs);
+      outs1.addAll(other.outs1);
+    }
+  }
+
+  private Fragment parseAlternation() {
+    Fragment left = parseConcatenation();
+    while (peek() == '|') {
+      mPosition++;
+      final Fragment right = parseConcatenation();
+      final Node split = newNode(NODE_SPLIT);
+      split.out = left.start;
+      split.out1 = right.start;
+      final Fragment fragment = new Fragment(split);
+      fragment.danglingFrom(left);
+      fragment.danglingFrom(right);
+      left = fragment;
+    }
+    return left;
+  }
+
+  private Fragment parseConcatenation() {
+    Fragment result = null;
+    while (mPosition < mEnd && peek() != '|' && peek() != ')') {
+      result = concatenate(result, parseRepetition());
+    }
+    return result != null ? result : empty();
+  }
+
+  private Fragment parseRepetition() {
+    final int start = mPosition;
+    Fragment atom = parseAtom();
+    while (true) {
+      final char quantifier = peek();
+      if (quantifier == '*' || quantifier == '+' || quantifier == '?') {
+        mPosition++;
+        atom = quantify(atom, quantifier);
+      } else if (quantifier == '{') {
+        // The atom and its quantifiers so far, parsed again for every copy
+        final int end = mPosition;
+        mPosition++;
+        final int min = parseCount();
+        int max = min;
+        if (peek() == ',') {
+          mPosition++;
+          max = peek() == '}' ? UNBOUNDED : parseCount();
+        }
+        expect('}');
+        if (max != UNBOUNDED && max < min) {
+          throw new IllegalArgumentException("pattern: bad repetition {" + min + "," + max + "}");
+        }
+        atom = repeat(atom, start, end, min, max);
+      } else {
+        return atom;
+      }
+    }
+  }
+
+  private Fragment quantify(Fragment atom, char quantifier) {
+    final Node split = newNode(NODE_SPLIT);
+    split.out = atom.start;
+    final Fragment fragment;
+    if (quantifier == '*') {
+      atom.patch(split);
+      fragment = new Fragment(split);
+    } else if (quantifier == '+') {
+      atom.patch(split);
+      fragment = new Fragment(atom.start);
+    } else {
+      fragment = new Fragment(split);
+      fragment.danglingFrom(atom);
+    }
+    fragment.outs1.add(split);
+    return fragment;
+  }
+
+  // x{2,4} is built as xxx?x?, and x{2,} as xxx*
+  private Fragment repeat(Fragment atom, int start, int end, int min, int max) {
+    Fragment result = null;
+    int copies = 0;
+    for (; copies < min; copies++) {
+      result = concatenate(result, copies == 0 ? atom : copy(start, end));
+    }
+    if (max == UNBOUNDED) {
+      result = concatenate(result, quantify(copies == 0 ? atom : copy(start, end), '*'));
+    } else {
+      for (; copies < max; copies++) {
+        result = concatenate(result, quantify(copies == 0 ? atom : copy(start, end), '?'));
+      }
+    }
+    return result != null ? result : empty();
+  }
+
+  private Fragment copy(int start, int end) {
+    final int position = mPosition;
+    final int limit = mEnd;
+    mPosition = start;
+    mEnd = end;
+    final Fragment copy = parseRepetition();
+    mPosition = position;
+    mEnd = limit;
+    return copy;
+  }
+
+  private int parseCount() {
+    int count = 0;
+    int digits = 0;
+    while (peek() >= '0' && peek() <= '9') {
+      count = count * 10 + mPattern.charAt(mPosition++) - '0';
+      digits++;
+      if (count > MAX_NODES) {
+        throw new IllegalArgumentException("pattern: repetition too large");
+      }
+    }
+    if (digits == 0) {
+      throw new IllegalArgumentException("pattern: bad repetition");
+    }
+    return count;
+  }
+
+  private Fragment parseAtom() {
+    final char c = mPattern.charAt(mPosition++);
+    switch (c) {
+      case '(': {
+        final Fragment inner = parseAlternation();
+        expect(')');
+        return inner;
+      }
+      case '[':
+        return chars(parseClass());
+      case '.':
+        return chars(new char[] {0, Character.MAX_VALUE});
+      case '\\':
+        return chars(parseEscape(take()));
+      case '^':
+        return assertion(NODE_BEGIN);
+      case '$':
+        return assertion(NODE_END);
+      case '*':
+      case '+':
+      case '?':
+      case '{':
+      case ')':
+        throw new IllegalArgumentException("pattern: unexpected '" + c + "'");
+      default:
+        return chars(new char[] {c, c});
+    }
+  }
+
+  private char[] parseClass() {
+    final boolean negate = peek() == '^';
+    if (negate) {
+      mPosition++;
+    }
+    final StringBuilder ranges = new StringBuilder();
+    char from;
+    while ((from = take()) != ']') {
+      if (from == '\\') {
+        ranges.append(parseEscape(take()));
+        continue;
+      }
+      char to = from;
+      if (peek() == '-' && mPosition + 1 < mEnd && mPattern.charAt(mPosition + 1) != ']') {
+        mPosition++;
+        to = take();
+        if (to < from) {
+          throw new IllegalArgumentException("pattern: bad range " + from + "-" + to);
+        }
+      }
+      ranges.append(from).append(to);
+    }
+    final char[] result = ranges.toString().toCharArray();
+    return negate ? complement(result) : result;
+  }
+
+  private static char[] parseEscape(char c) {
+    switch (c) {
+      case 'd':
+        return new char[] {'0', '9'};
+      case 'D':
+        return complement(parseEscape('d'));
+      case 'w':
+        return new char[] {'0', '9', 'A', 'Z', '_', '_', 'a', 'z'};
+      case 'W':
+        return complement(parseEscape('w'));
+      case 's':
+        return new char[] {'\t', '\r', ' ', ' '};
+      case 'S':
+        return complement(parseEscape('s'));
+      case 't':
+        return new char[] {'\t', '\t'};
+      case 'n':
+        return new char[] {'\n', '\n'};
+      case 'r':
+        return new char[] {'\r', '\r'};
+      case 'f':
+        return new char[] {'\f', '\f'};
+      default:
+        if (Character.isLetterOrDigit(c)) {
+          throw new IllegalArgumentException("pattern: unsupported escape \\" + c);
+        }
+        return new char[] {c, c};
+    }
+  }
+
+  // The chars that none of the ranges contain, as ranges
+  private static char[] complement(char[] ranges) {
+    final char[][] sorted = new char[ranges.length / 2][];
+    for (int i = 0; i < sorted.length; i++) {
+      sorted[i] = new char[] {ranges[2 * i], ranges[2 * i + 1]};
+    }
+    Arrays.sort(sorted, new Comparator<char[]>() {
+      @Override
+      public int compare(char[] a, char[] b) {
+        return a[0] - b[0];
+      }
+    });
+    final StringBuilder result = new StringBuilder();
+    // The first char not covered yet, past Character.MAX_VALUE once everything is
+    int next = 0;
+    for (char[] range : sorted) {
+      if (range[0] > next) {
+        result.append((char) next).append((char) (range[0] - 1));
+      }
+      next = Math.max(next, range[1] + 1);
+    }
+    if (next <= Character.MAX_VALUE) {
+      result.append((char) next).append(Character.MAX_VALUE);
+    }
+    return result.toString().toCharArray();
+  }
+
+  private Fragment chars(char[] ranges) {
+    final Node node = newNode(NODE_CHARS);
+    node.ranges = ranges;
+    final Fragment fragment = new Fragment(node);
+    fragment.outs.add(node);
+    return fragment;
+  }
+
+  private Fragment assertion(int type) {
+    final Node node = newNode(type);
+    final Fragment fragment = new Fragment(node);
+    fragment.outs.add(node);
+    return fragment;
+  }
+
+  // Matches the empty string
+  private Fragment empty() {
+    final Node split = newNode(NODE_SPLIT);
+    final Fragment fragment = new Fragment(split);
+    fragment.outs.add(split);
+    return fragment;
+  }
+
+  private static Fragment concatenate(Fragment first, Fragment second) {
+    if (first == null) {
+      return second;
+    }
+    first.patch(second.start);
+    final Fragment fragment = new Fragment(first.start);
+    fragment.danglingFrom(second);
+    return fragment;
+  }
+
+  private char peek() {
+    return mPosition < mEnd ? mPattern.charAt(mPosition) : '\0';
+  }
+
+  private char take() {
+    if (mPosition >= mEnd) {
+      throw new IllegalArgumentException("pattern: unexpected end");
+    }
+    return mPattern.charAt(mPosition++);
+  }
+
+  private void expect(char c) {
+    if (peek() != c) {
+      throw new IllegalArgumentException("pattern: expected '" + c + "'");
+    }
+    mPosition++;
+  }
+}
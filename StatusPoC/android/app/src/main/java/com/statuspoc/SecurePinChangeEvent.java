@@ -0,0 +1,41 @@
+package com.statuspoc;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.uimanager.events.Event;
+import com.facebook.react.uimanager.events.RCTEventEmitter;
+
+/**
+ * Event emitted when a digit is typed into or deleted from a PIN field. It only carries how many
+ * digits there are, never the digits themselves.
+ */
+public class SecurePinChangeEvent extends Event<SecurePinChangeEvent> {
+
+  public static final String EVENT_NAME = "topPinChange";
+
+  private final int mFilled;
+  private final boolean mComplete;
+
+  public SecurePinChangeEvent(int viewId, int filled, boolean complete) {
+    super(viewId);
+    mFilled = filled;
+    mComplete = complete;
+  }
+
+  @Override
+  public String getEventName() {
+    return EVENT_NAME;
+  }
+
+  @Override
+  public void dispatch(RCTEventEmitter rctEventEmitter) {
+    rctEventEmitter.receiveEvent(getViewTag(), getEventName(), serializeEventData());
+  }
+
+  private WritableMap serializeEventData() {
+    WritableMap eventData = Arguments.createMap();
+    eventData.putInt("filled", mFilled);
+    eventData.putBoolean("complete", mComplete);
+    return eventData;
+  }
+}
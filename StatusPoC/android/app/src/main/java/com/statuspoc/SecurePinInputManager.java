@@ -0,0 +1,122 @@
+package com.statuspoc;
+
+import android.graphics.Color;
+import android.util.ArrayMap;
+import com.facebook.react.common.MapBuilder;
+import com.facebook.react.module.annotations.ReactModule;
+import com.facebook.react.uimanager.SimpleViewManager;
+import com.facebook.react.uimanager.ThemedReactContext;
+import com.facebook.react.uimanager.UIManagerModule;
+import com.facebook.react.uimanager.annotations.ReactProp;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+/**
+ * Manages instances of SecurePinInput. PINs are kept by their views, and are wiped when the view
+ * is dropped.
+ */
+@ReactModule(name = SecurePinInputManager.REACT_CLASS)
+public class SecurePinInputManager extends SimpleViewManager<SecurePinView> {
+
+  protected static final String REACT_CLASS = "RCTSecurePinInput";
+
+  /**
+   * Receives the digits of a PIN, one per byte. The array is only valid during the call: it must
+   * not be kept, and is not a copy.
+   */
+  public interface PinBorrower {
+    void borrow(byte[] digits, int count);
+  }
+
+  @Override
+  public String getName() {
+    return REACT_CLASS;
+  }
+
+  @Override
+  protected SecurePinView createViewInstance(final ThemedReactContext context) {
+    final SecurePinView view = new SecurePinView(context);
+    view.setListener(new SecurePinView.Listener() {
+      @Override
+      public void onPinChanged(SecurePinView pin) {
+        context.getNativeModule(UIManagerModule.class).getEventDispatcher().dispatchEvent(
+            new SecurePinChangeEvent(pin.getId(), pin.getCount(), pin.isComplete()));
+      }
+    });
+    return view;
+  }
+
+  @Override
+  public void onDropViewInstance(SecurePinView view) {
+    super.onDropViewInstance(view);
+    unregister(view);
+    view.setListener(null);
+    view.wipe();
+  }
+
+  @ReactProp(name = "registrationID")
+  public void setRegistrationId(SecurePinView view, @Nullable String id) {
+    unregister(view);
+    view.setRegistrationId(id);
+    if (id != null) {
+      SecureRegistryModule.get(view.getContext()).getPins().put(id, view);
+    }
+  }
+
+  @ReactProp(name = "length", defaultInt = SecurePinView.MIN_LENGTH)
+  public void setLength(SecurePinView view, int length) {
+    view.setLength(length);
+  }
+
+  @ReactProp(name = "color", customType = "Color")
+  public void setColor(SecurePinView view, @Nullable Integer color) {
+    view.setColor(color != null ? color : Color.BLACK);
+  }
+
+  // A PIN of the React instance native callers deal with, see SecureRegistryModule
+  private static @Nullable SecurePinView getCurrentPin(String id) {
+    final SecureRegistryModule module = SecureRegistryModule.getCurrent();
+    return module != null ? module.getPins().get(id) : null;
+  }
+
+  private static void unregister(SecurePinView view) {
+    final String id = view.getRegistrationId();
+    final ArrayMap<String, SecurePinView> pins =
+        SecureRegistryModule.get(view.getContext()).getPins();
+    if (id != null && pins.get(id) == view) {
+      pins.remove(id);
+    }
+    view.setRegistrationId(null);
+  }
+
+  /**
+   * Lends the digits of the given PIN to {@code borrower} without copying them. Returns false if
+   * there is no such PIN.
+   */
+  public static boolean borrowPin(final String id, final PinBorrower borrower) {
+    final SecurePinView view = getCurrentPin(id);
+    if (view == null) {
+      return false;
+    }
+    borrower.borrow(view.getDigits(), view.getCount());
+    return true;
+  }
+
+  /**
+   * Wipes the digits of the given PIN, e.g. after it was checked.
+   */
+  public static void clearPin(final String id) {
+    final SecurePinView view = getCurrentPin(id);
+    if (view != null) {
+      view.wipe();
+    }
+  }
+
+  @Override
+  public @Nullable Map<String, Object> getExportedCustomDirectEventTypeConstants() {
+    return MapBuilder.<String, Object>of(
+        SecurePinChangeEvent.EVENT_NAME,
+        MapBuilder.of("registrationName", "onPinChange"));
+  }
+}
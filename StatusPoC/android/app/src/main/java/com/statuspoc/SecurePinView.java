@@ -0,0 +1,203 @@
+package com.statuspoc;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.view.KeyEvent;
+import android.view.MotionEvent;
+import android.view.View;
+import android.widget.PopupWindow;
+import com.facebook.react.uimanager.PixelUtil;
+import java.util.Arrays;
+
+import javax.annotation.Nullable;
+
+/**
+ * A fixed-length PIN field.
+ *
+ * The digits are kept in a byte array with a count, so a PIN never exists as a String, a char
+ * sequence or an Editable, and there is no text to lay out: the view draws one cell per digit, and
+ * fills the cells that have been typed. Digits come from the in-app keypad, or from a hardware
+ * keyboard.
+ */
+final class SecurePinView extends View {
+
+  interface Listener {
+    void onPinChanged(SecurePinView view);
+  }
+
+  static final int MIN_LENGTH = 4;
+  static final int MAX_LENGTH = 8;
+  private static final float STROKE_WIDTH_DP = 2;
+
+  private final byte[] mDigits = new byte[MAX_LENGTH];
+  private int mLength = MIN_LENGTH;
+  private int mCount;
+  private @Nullable Listener mListener;
+  private @Nullable String mRegistrationId;
+  private @Nullable PopupWindow mKeypadPopup;
+
+  private final Paint mCellPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+  private final Paint mFilledPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+  SecurePinView(Context context) {
+    super(context);
+    setFocusable(true);
+    setFocusableInTouchMode(true);
+    mCellPaint.setStyle(Paint.Style.STROKE);
+    mCellPaint.setStrokeWidth(PixelUtil.toPixelFromDIP(STROKE_WIDTH_DP));
+    setColor(Color.BLACK);
+  }
+
+  void setListener(@Nullable Listener listener) {
+    mListener = listener;
+  }
+
+  /*package*/ void setRegistrationId(@Nullable String id) {
+    mRegistrationId = id;
+  }
+
+  /*package*/ @Nullable String getRegistrationId() {
+    return mRegistrationId;
+  }
+
+  void setColor(int color) {
+    mCellPaint.setColor(color);
+    mFilledPaint.setColor(color);
+    invalidate();
+  }
+
+  void setLength(int length) {
+    if (length < MIN_LENGTH || length > MAX_LENGTH) {
+      throw new IllegalArgumentException(
+          "length: must be between " + MIN_LENGTH + " and " + MAX_LENGTH);
+    }
+    if (length == mLength) {
+      return;
+    }
+    mLength = length;
+    if (mCount > length) {
+      wipe();
+    }
+    invalidate();
+  }
+
+  int getLength() {
+    return mLength;
+  }
+
+  int getCount() {
+    return mCount;
+  }
+
+  boolean isComplete() {
+    return mCount == mLength;
+  }
+
+  /**
+   * The digits typed so far, one per byte, in the first {@link #getCount()} bytes. Not a copy.
+   */
+  /*package*/ byte[] getDigits() {
+    return mDigits;
+  }
+
+  void wipe() {
+    Arrays.fill(mDigits, (byte) 0);
+    if (mCount > 0) {
+      mCount = 0;
+      onChanged();
+    }
+  }
+
+  private void push(int digit) {
+    if (mCount < mLength) {
+      mDigits[mCount++] = (byte) digit;
+      onChanged();
+    }
+  }
+
+  private void pop() {
+    if (mCount > 0) {
+      mDigits[--mCount] = 0;
+      onChanged();
+    }
+  }
+
+  private void onChanged() {
+    invalidate();
+    if (mListener != null) {
+      mListener.onPinChanged(this);
+    }
+  }
+
+  @Override
+  protected void onDraw(Canvas canvas) {
+    final float cellWidth = (float) getWidth() / mLength;
+    final float radius = Math.min(cellWidth, getHeight()) / 4;
+    final float y = getHeight() / 2f;
+    for (int i = 0; i < mLength; i++) {
+      canvas.drawCircle(cellWidth * (i + 0.5f), y, radius, i < mCount ? mFilledPaint : mCellPaint);
+    }
+  }
+
+  @Override
+  public boolean onTouchEvent(MotionEvent event) {
+    if (event.getActionMasked() == MotionEvent.ACTION_UP) {
+      requestFocus();
+      showKeypad();
+    }
+    return true;
+  }
+
+  @Override
+  public boolean onKeyDown(int keyCode, KeyEvent event) {
+    if (keyCode >= KeyEvent.KEYCODE_0 && keyCode <= KeyEvent.KEYCODE_9) {
+      push(keyCode - KeyEvent.KEYCODE_0);
+      return true;
+    }
+    if (keyCode == KeyEvent.KEYCODE_DEL) {
+      pop();
+      return true;
+    }
+    return super.onKeyDown(keyCode, event);
+  }
+
+  @Override
+  protected void onFocusChanged(boolean focused, int direction, @Nullable Rect previous) {
+    super.onFocusChanged(focused, direction, previous);
+    if (!focused) {
+      hideKeypad();
+    }
+  }
+
+  @Override
+  protected void onDetachedFromWindow() {
+    hideKeypad();
+    super.onDetachedFromWindow();
+  }
+
+  private void showKeypad() {
+    if (mKeypadPopup == null) {
+      mKeypadPopup = SecureKeypadView.createPopup(getContext(), new SecureKeypadView.Listener() {
+        @Override
+        public void onDigit(int digit) {
+          push(digit);
+        }
+
+        @Override
+        public void onDelete() {
+          pop();
+        }
+      });
+    }
+    SecureKeypadView.showPopup(mKeypadPopup, this);
+  }
+
+  private void hideKeypad() {
+    if (mKeypadPopup != null && mKeypadPopup.isShowing()) {
+      mKeypadPopup.dismiss();
+    }
+  }
+}
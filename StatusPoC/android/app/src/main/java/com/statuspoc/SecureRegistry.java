@@ -0,0 +1,299 @@
+package com.statuspoc;
+
+import android.util.ArrayMap;
+
+import java.util.ArrayList;
+
+import javax.annotation.Nullable;
+
+/**
+ * The secure values registered by SecureTextInput2 views, by scope and registration ID.
+ *
+ * A scope is a namespace for the fields of a screen or a flow, e.g. {@code "onboarding"}. Fields in
+ * the default scope are dropped as soon as their view is detached. Fields in a named scope outlive
+ * their views, and are all wiped together when the scope is destroyed: their chars are kept in the
+ * {@link SecureArena} of the scope, which is wiped and dropped in one go. Values can also be
+ * expired or evicted by the {@link SecureRetention} policy of the registry.
+ */
+final class SecureRegistry {
+
+  static final String DEFAULT_SCOPE = "default";
+
+  interface FieldListener {
+    /**
+     * Called after the field {@code id} of {@code scope} was created or removed, so that the views
+     * depending on it, see {@link Scope#getMatchers}, can be rebound.
+     */
+    void onFieldChanged(Scope scope, String id);
+  }
+
+  static final class Scope {
+    private final String mName;
+    private final SecureRetention mRetention;
+    private final FieldListener mFieldListener;
+    private final SecureRetention.Account mRetentionAccount = new SecureRetention.Account();
+    private final SecureArena mArena = new SecureArena();
+    private final ArrayMap<String, SecureField> mFields = new ArrayMap<String, SecureField>();
+    private final ArrayMap<String, SecureEditText> mViews =
+        new ArrayMap<String, SecureEditText>();
+    private final ArrayMap<String, SecureFieldGroup> mGroups =
+        new ArrayMap<String, SecureFieldGroup>();
+    // Views whose match is bound to a field ID, whether or not that field exists yet
+    private final ArrayMap<String, ArrayList<SecureEditText>> mMatchers =
+        new ArrayMap<String, ArrayList<SecureEditText>>();
+
+    private Scope(String name, SecureRetention retention, FieldListener fieldListener) {
+      mName = name;
+      mRetention = retention;
+      mFieldListener = fieldListener;
+    }
+
+    String getName() {
+      return mName;
+    }
+
+    boolean isDefault() {
+      return mName.equals(DEFAULT_SCOPE);
+    }
+
+    SecureRetention.Account getRetentionAccount() {
+      return mRetentionAccount;
+    }
+
+    SecureArena getArena() {
+      return mArena;
+    }
+
+    @Nullable SecureField getField(String id) {
+      return mFields.get(id);
+    }
+
+    SecureField getOrCreateField(String id) {
+      SecureField field = mFields.get(id);
+      if (field == null) {
+        field = new SecureField(mArena);
+        mFields.put(id, field);
+        mRetention.track(this, id, field);
+        mFieldListener.onFieldChanged(this, id);
+      }
+      return field;
+    }
+
+    int getFieldCount() {
+      return mFields.size();
+    }
+
+    String getFieldIdAt(int index) {
+      return mFields.keyAt(index);
+    }
+
+    SecureField getFieldAt(int index) {
+      return mFields.valueAt(index);
+    }
+
+    @Nullable SecureEditText getView(String id) {
+      return mViews.get(id);
+    }
+
+    int getViewCount() {
+      return mViews.size();
+    }
+
+    SecureEditText getViewAt(int index) {
+      return mViews.valueAt(index);
+    }
+
+    @Nullable SecureFieldGroup getGroup(String groupId) {
+      return mGroups.get(groupId);
+    }
+
+    void addGroup(SecureFieldGroup group) {
+      mGroups.put(group.getId(), group);
+    }
+
+    /**
+     * Removes {@code field} from the group it belongs to, if any. Empty groups are dropped.
+     */
+    void leaveGroup(SecureField field) {
+      for (int i = 0; i < mGroups.size(); i++) {
+        final SecureFieldGroup group = mGroups.valueAt(i);
+        if (group.remove(field)) {
+          if (group.isEmpty()) {
+            mGroups.removeAt(i);
+          }
+          return;
+        }
+      }
+    }
+
+    /**
+     * Wipes and drops the field registered under {@code id}.
+     */
+    void removeField(String id) {
+      final SecureField field = mFields.remove(id);
+      if (field != null) {
+        mRetention.untrack(field);
+        leaveGroup(field);
+        field.wipe();
+        mFieldListener.onFieldChanged(this, id);
+      }
+    }
+
+    /**
+     * Returns the views whose match is bound to the field {@code id}, or null if there are none.
+     */
+    @Nullable ArrayList<SecureEditText> getMatchers(String id) {
+      return mMatchers.get(id);
+    }
+
+    void addMatcher(String id, SecureEditText view) {
+      ArrayList<SecureEditText> views = mMatchers.get(id);
+      if (views == null) {
+        views = new ArrayList<SecureEditText>();
+        mMatchers.put(id, views);
+      }
+      if (!views.contains(view)) {
+        views.add(view);
+      }
+    }
+
+    void removeMatcher(String id, SecureEditText view) {
+      final ArrayList<SecureEditText> views = mMatchers.get(id);
+      if (views != null && views.remove(view) && views.isEmpty()) {
+        mMatchers.remove(id);
+      }
+    }
+
+    /**
+     * Wipes every field of the scope at once, by releasing its arena, however many fields there
+     * are. The scope must already be removed from the registry, and its views unregistered.
+     */
+    void wipe() {
+      mArena.release();
+      mRetention.release(mRetentionAccount);
+      mGroups.clear();
+      mFields.clear();
+      mViews.clear();
+      mMatchers.clear();
+    }
+  }
+
+  private final ArrayMap<String, Scope> mScopes = new ArrayMap<String, Scope>();
+  private final SecureRetention mRetention;
+  private final FieldListener mFieldListener;
+
+  SecureRegistry(SecureRetention.Callback retentionCallback, FieldListener fieldListener) {
+    mRetention = new SecureRetention(retentionCallback);
+    mFieldListener = fieldListener;
+  }
+
+  SecureRetention getRetention() {
+    return mRetention;
+  }
+
+  static String resolve(@Nullable String scope) {
+    return scope != null ? scope : DEFAULT_SCOPE;
+  }
+
+  @Nullable Scope getScope(@Nullable String scope) {
+    return mScopes.get(resolve(scope));
+  }
+
+  Scope getOrCreateScope(@Nullable String scope) {
+    final String name = resolve(scope);
+    Scope result = mScopes.get(name);
+    if (result == null) {
+      result = new Scope(name, mRetention, mFieldListener);
+      mScopes.put(name, result);
+    }
+    return result;
+  }
+
+  @Nullable SecureField getField(@Nullable String scope, String id) {
+    final Scope result = getScope(scope);
+    return result != null ? result.getField(id) : null;
+  }
+
+  @Nullable SecureEditText getView(@Nullable String scope, String id) {
+    final Scope result = getScope(scope);
+    return result != null ? result.getView(id) : null;
+  }
+
+  /**
+   * Returns the field registered by {@code view}, or null if it is not registered.
+   */
+  @Nullable SecureField getField(SecureEditText view) {
+    final String id = view.getRegistrationId();
+    return id != null ? getField(view.getRegistrationScope(), id) : null;
+  }
+
+  /**
+   * Registers {@code view} under {@code id} in {@code scope}. A new field starts with the view's
+   * text, an existing one is kept as is.
+   */
+  SecureField register(SecureEditText view, @Nullable String scope, String id) {
+    final Scope result = getOrCreateScope(scope);
+    SecureField field = result.getField(id);
+    if (field == null) {
+      field = result.getOrCreateField(id);
+      field.setValue(view.getText());
+    }
+    result.mViews.put(id, view);
+    mRetention.setAttached(field, true);
+    view.setRegistration(result.getName(), id);
+    return field;
+  }
+
+  /**
+   * Unregisters {@code view}. In the default scope its field is wiped and dropped as well.
+   */
+  void unregister(SecureEditText view) {
+    final String id = view.getRegistrationId();
+    final Scope scope = id != null ? getScope(view.getRegistrationScope()) : null;
+    view.setRegistration(null, null);
+    if (scope == null) {
+      return;
+    }
+
+    if (scope.mViews.get(id) == view) {
+      scope.mViews.remove(id);
+    }
+    if (scope.isDefault()) {
+      scope.removeField(id);
+    } else if (scope.getField(id) != null) {
+      mRetention.setAttached(scope.getField(id), false);
+    }
+  }
+
+  /**
+   * Removes a scope from the registry, so none of its fields can be found anymore. The caller is
+   * responsible for calling {@link Scope#wipe()} on the result.
+   */
+  @Nullable Scope removeScope(@Nullable String scope) {
+    return mScopes.remove(resolve(scope));
+  }
+
+  Scope getScopeAt(int index) {
+    return mScopes.valueAt(index);
+  }
+
+  int getScopeCount() {
+    return mScopes.size();
+  }
+
+  int getFieldCount() {
+    int count = 0;
+    for (int i = 0; i < mScopes.size(); i++) {
+      count += mScopes.valueAt(i).mFields.size();
+    }
+    return count;
+  }
+
+  int getViewCount() {
+    int count = 0;
+    for (int i = 0; i < mScopes.size(); i++) {
+      count += mScopes.valueAt(i).mViews.size();
+    }
+    return count;
+  }
+}
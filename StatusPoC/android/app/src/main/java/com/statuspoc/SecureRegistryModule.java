@@ -0,0 +1,144 @@
+package com.statuspoc;
+
+import android.content.Context;
+import android.util.ArrayMap;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.UiThreadUtil;
+import com.facebook.react.module.annotations.ReactModule;
+import java.util.ArrayList;
+
+import javax.annotation.Nullable;
+
+/**
+ * The secure state of one React instance: the registry of SecureTextInput2, the values of
+ * SecureTextInput and the PINs of SecurePinInput.
+ *
+ * Each React instance gets its own, so the registration IDs of different roots don't collide, and
+ * everything is wiped when the instance is destroyed, e.g. on reload. Views reach the state of
+ * their instance through their context. The static methods of the view managers are a facade for
+ * native code that has no context: they use the instance created last that is still alive. Values
+ * set through the facades before any instance exists are handed to the first one.
+ */
+@ReactModule(name = SecureRegistryModule.NAME)
+public class SecureRegistryModule extends ReactContextBaseJavaModule {
+
+  protected static final String NAME = "SecureRegistry";
+
+  // Live modules, oldest first
+  private static final ArrayList<SecureRegistryModule> modules =
+      new ArrayList<SecureRegistryModule>();
+  private static final SecureTextBatch earlyTexts = new SecureTextBatch(null);
+  private static final SecureTextBatch earlyLegacyTexts = new SecureTextBatch(null);
+
+  private final SecureRegistry mRegistry;
+  private final SecureTextBatch mTextBatch;
+  private final SecureMemoryTrimmer mTrimmer;
+  private final ReactSecureTextInputManager.Registrations mLegacyRegistrations =
+      new ReactSecureTextInputManager.Registrations();
+  private final ArrayMap<String, SecurePinView> mPins = new ArrayMap<String, SecurePinView>();
+
+  public SecureRegistryModule(ReactApplicationContext reactContext) {
+    super(reactContext);
+    mRegistry = SecureTextInputManager.createRegistry();
+    mTextBatch = SecureTextInputManager.createTextBatch(mRegistry);
+    mTrimmer = new SecureMemoryTrimmer(mRegistry);
+    reactContext.getApplicationContext().registerComponentCallbacks(mTrimmer);
+
+    synchronized (modules) {
+      if (modules.isEmpty()) {
+        earlyTexts.drainTo(mTextBatch);
+        earlyLegacyTexts.drainTo(mLegacyRegistrations.getTextBatch());
+      }
+      modules.add(this);
+    }
+  }
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  /**
+   * Returns the module of the React instance {@code context} belongs to, which must be a
+   * ReactContext, as the context of any React view is.
+   */
+  static SecureRegistryModule get(Context context) {
+    return ((ReactContext) context).getNativeModule(SecureRegistryModule.class);
+  }
+
+  /**
+   * Returns the module the static facades use, or null if no React instance is alive.
+   */
+  static @Nullable SecureRegistryModule getCurrent() {
+    synchronized (modules) {
+      return modules.isEmpty() ? null : modules.get(modules.size() - 1);
+    }
+  }
+
+  /**
+   * Returns the batch values set through the facade of SecureTextInput2 go to.
+   */
+  static SecureTextBatch getCurrentTextBatch() {
+    synchronized (modules) {
+      return modules.isEmpty()
+          ? earlyTexts
+          : modules.get(modules.size() - 1).mTextBatch;
+    }
+  }
+
+  /**
+   * Returns the batch values set through the facade of SecureTextInput go to.
+   */
+  static SecureTextBatch getCurrentLegacyTextBatch() {
+    synchronized (modules) {
+      return modules.isEmpty()
+          ? earlyLegacyTexts
+          : modules.get(modules.size() - 1).mLegacyRegistrations.getTextBatch();
+    }
+  }
+
+  SecureRegistry getRegistry() {
+    return mRegistry;
+  }
+
+  SecureTextBatch getTextBatch() {
+    return mTextBatch;
+  }
+
+  SecureMemoryTrimmer getTrimmer() {
+    return mTrimmer;
+  }
+
+  ReactSecureTextInputManager.Registrations getLegacyRegistrations() {
+    return mLegacyRegistrations;
+  }
+
+  ArrayMap<String, SecurePinView> getPins() {
+    return mPins;
+  }
+
+  @Override
+  public void onCatalystInstanceDestroy() {
+    synchronized (modules) {
+      modules.remove(this);
+    }
+    getReactApplicationContext().getApplicationContext().unregisterComponentCallbacks(mTrimmer);
+    mTextBatch.clear();
+    mLegacyRegistrations.getTextBatch().clear();
+
+    // Called on the native modules thread, the state belongs to the UI thread
+    UiThreadUtil.runOnUiThread(new Runnable() {
+      @Override
+      public void run() {
+        SecureTextInputManager.destroyRegistry(mRegistry);
+        mLegacyRegistrations.clear();
+        for (int i = 0; i < mPins.size(); i++) {
+          mPins.valueAt(i).wipe();
+        }
+        mPins.clear();
+      }
+    });
+  }
+}
@@ -0,0 +1,408 @@
+package com.statuspoc;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import javax.annotation.Nullable;
+
+/**
+ * Limits how long and how much secure data the registry keeps.
+ *
+ * A field with a TTL expires once it has not changed for that long. Deadlines are kept in a hashed
+ * timing wheel driven by a single Handler tick, and an edit only moves the deadline of its field:
+ * the field is moved to the right slot when the wheel reaches its old one. The registry can also
+ * be given a byte budget, which is enforced by evicting the least recently changed values that are
+ * not attached to a view. Fields are linked into both structures through their own {@link Node}, so
+ * scheduling, touching and evicting a field are O(1) regardless of how many fields there are. The
+ * nodes of a destroyed scope are all released at once through its {@link Account}, and unlinked
+ * lazily.
+ */
+final class SecureRetention {
+
+  interface Callback {
+    /**
+     * Called when the value of a field expired or was evicted, and has to be wiped.
+     */
+    void onExpired(SecureRegistry.Scope scope, String id, SecureField field);
+  }
+
+  // Must be a power of two
+  private static final int WHEEL_SIZE = 256;
+  private static final long TICK_MS = 1000;
+  private static final int BYTES_PER_CHAR = 2;
+
+  /**
+   * What the fields of a scope hold in the retention state, so that it can be released in one go.
+   */
+  static final class Account {
+    private int mNodes;
+    private long mBytes;
+    private boolean mReleased;
+  }
+
+  /**
+   * The retention state of a field, attached to it as an edit listener.
+   */
+  static final class Node implements SecureField.EditListener {
+    private final SecureRetention mRetention;
+    private final Account mAccount;
+    private final SecureRegistry.Scope mScope;
+    private final String mId;
+    private final SecureField mField;
+    private int mBytes;
+    private boolean mAttached;
+
+    private long mTtlTicks;
+    // Absolute tick at which the field expires, may be later than the slot it is linked in
+    private long mDeadline;
+    private boolean mScheduled;
+    private int mSlot;
+    private @Nullable Node mTimerPrevious;
+    private @Nullable Node mTimerNext;
+
+    private boolean mInLru;
+    private @Nullable Node mLruPrevious;
+    private @Nullable Node mLruNext;
+
+    private Node(
+        SecureRetention retention,
+        SecureRegistry.Scope scope,
+        String id,
+        SecureField field) {
+      mRetention = retention;
+      mAccount = scope.getRetentionAccount();
+      mScope = scope;
+      mId = id;
+      mField = field;
+    }
+
+    @Override
+    public void onBeforeReplace(SecureBuffer value, int start, int before) {
+    }
+
+    @Override
+    public void onAfterReplace(SecureBuffer value, int start, int count) {
+      mRetention.onChanged(this, value.length() * BYTES_PER_CHAR);
+    }
+  }
+
+  private final Callback mCallback;
+  private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+  private final Node[] mWheel = new Node[WHEEL_SIZE];
+  private int mScheduledCount;
+  private long mLastTick;
+  private boolean mTickPosted;
+  private final Runnable mTick = new Runnable() {
+    @Override
+    public void run() {
+      mTickPosted = false;
+      tick();
+    }
+  };
+
+  // Detached fields, least recently changed first
+  private @Nullable Node mLruHead;
+  private @Nullable Node mLruTail;
+  private long mBytes;
+  private long mBudget;
+  private boolean mEvictPosted;
+  // Nodes that may still be linked, and those of them whose scope was released
+  private int mNodeCount;
+  private int mReleasedNodeCount;
+  private final Runnable mEvict = new Runnable() {
+    @Override
+    public void run() {
+      mEvictPosted = false;
+      evict();
+    }
+  };
+
+  SecureRetention(Callback callback) {
+    mCallback = callback;
+  }
+
+  void track(SecureRegistry.Scope scope, String id, SecureField field) {
+    final Node node = new Node(this, scope, id, field);
+    field.setRetentionNode(node);
+    field.addEditListener(node);
+    node.mAccount.mNodes++;
+    mNodeCount++;
+    setAttached(field, false);
+    onChanged(node, field.getValue().length() * BYTES_PER_CHAR);
+  }
+
+  void untrack(SecureField field) {
+    final Node node = field.getRetentionNode();
+    if (node == null) {
+      return;
+    }
+
+    field.removeEditListener(node);
+    field.setRetentionNode(null);
+    if (node.mAccount.mReleased) {
+      // Accounted for by release(), and unlinked by the next sweep
+      return;
+    }
+    unschedule(node);
+    unlinkLru(node);
+    mBytes -= node.mBytes;
+    node.mAccount.mNodes--;
+    node.mAccount.mBytes -= node.mBytes;
+    mNodeCount--;
+  }
+
+  /**
+   * Drops the fields of a destroyed scope, without visiting them. Their nodes are skipped from now
+   * on, and unlinked once they are the majority, so each is visited once more at most.
+   */
+  void release(Account account) {
+    if (account.mReleased) {
+      return;
+    }
+    account.mReleased = true;
+    mBytes -= account.mBytes;
+    mReleasedNodeCount += account.mNodes;
+    if (2 * mReleasedNodeCount > mNodeCount) {
+      sweep();
+    }
+  }
+
+  /**
+   * Detached fields can be evicted to stay within the budget, attached ones can't.
+   */
+  void setAttached(SecureField field, boolean attached) {
+    final Node node = field.getRetentionNode();
+    if (node == null) {
+      return;
+    }
+
+    node.mAttached = attached;
+    if (attached) {
+      unlinkLru(node);
+    } else {
+      touchLru(node);
+      postEvict();
+    }
+  }
+
+  /**
+   * Sets how long the value of {@code field} is kept after its last change. 0 keeps it forever.
+   */
+  void setTtl(SecureField field, long ttlMs) {
+    final Node node = field.getRetentionNode();
+    if (node == null) {
+      return;
+    }
+
+    node.mTtlTicks = ttlMs > 0 ? Math.max(1, (ttlMs + TICK_MS - 1) / TICK_MS) : 0;
+    if (node.mTtlTicks > 0 && node.mBytes > 0) {
+      schedule(node);
+    } else {
+      unschedule(node);
+    }
+  }
+
+  /**
+   * Sets the maximum number of bytes of secure data kept by the registry. 0 means no limit.
+   */
+  void setBudget(long budget) {
+    mBudget = budget;
+    postEvict();
+  }
+
+  long getBytes() {
+    return mBytes;
+  }
+
+  /**
+   * Cancels the pending expiries and evictions, once the registry is gone.
+   */
+  void stop() {
+    mHandler.removeCallbacks(mTick);
+    mHandler.removeCallbacks(mEvict);
+    mTickPosted = false;
+    mEvictPosted = false;
+  }
+
+  private void onChanged(Node node, int bytes) {
+    mBytes += bytes - node.mBytes;
+    node.mAccount.mBytes += bytes - node.mBytes;
+    node.mBytes = bytes;
+    if (node.mTtlTicks > 0 && bytes > 0) {
+      schedule(node);
+    } else {
+      // Nothing left to expire
+      unschedule(node);
+    }
+    if (!node.mAttached) {
+      touchLru(node);
+    }
+    if (mBudget > 0 && mBytes > mBudget) {
+      // Not right away: the change that went over budget may be the one to evict
+      postEvict();
+    }
+  }
+
+  private static long nowTick() {
+    return SystemClock.uptimeMillis() / TICK_MS;
+  }
+
+  private void schedule(Node node) {
+    if (mScheduledCount == 0) {
+      mLastTick = nowTick();
+    }
+    node.mDeadline = nowTick() + node.mTtlTicks;
+    if (!node.mScheduled) {
+      link(node, slotOf(node.mDeadline));
+      node.mScheduled = true;
+      mScheduledCount++;
+    }
+    if (!mTickPosted) {
+      mTickPosted = true;
+      mHandler.postDelayed(mTick, TICK_MS);
+    }
+  }
+
+  private void unschedule(Node node) {
+    if (!node.mScheduled) {
+      return;
+    }
+    unlink(node);
+    node.mScheduled = false;
+    mScheduledCount--;
+  }
+
+  private static int slotOf(long tick) {
+    return (int) (tick & (WHEEL_SIZE - 1));
+  }
+
+  private void link(Node node, int slot) {
+    node.mSlot = slot;
+    node.mTimerPrevious = null;
+    node.mTimerNext = mWheel[slot];
+    if (mWheel[slot] != null) {
+      mWheel[slot].mTimerPrevious = node;
+    }
+    mWheel[slot] = node;
+  }
+
+  private void unlink(Node node) {
+    if (node.mTimerPrevious != null) {
+      node.mTimerPrevious.mTimerNext = node.mTimerNext;
+    } else {
+      mWheel[node.mSlot] = node.mTimerNext;
+    }
+    if (node.mTimerNext != null) {
+      node.mTimerNext.mTimerPrevious = node.mTimerPrevious;
+    }
+    node.mTimerPrevious = null;
+    node.mTimerNext = null;
+  }
+
+  private void tick() {
+    final long now = nowTick();
+    // After a long pause, a single turn of the wheel visits every slot
+    final long from = Math.max(mLastTick + 1, now - WHEEL_SIZE + 1);
+    mLastTick = now;
+    for (long tick = from; tick <= now; tick++) {
+      final int slot = slotOf(tick);
+      Node node = mWheel[slot];
+      while (node != null) {
+        final Node next = node.mTimerNext;
+        if (node.mAccount.mReleased) {
+          unschedule(node);
+        } else if (node.mDeadline <= now) {
+          unschedule(node);
+          mCallback.onExpired(node.mScope, node.mId, node.mField);
+        } else if (slotOf(node.mDeadline) != slot) {
+          // Changed since it was linked here
+          unlink(node);
+          link(node, slotOf(node.mDeadline));
+        }
+        node = next;
+      }
+    }
+
+    if (mScheduledCount > 0 && !mTickPosted) {
+      mTickPosted = true;
+      mHandler.postDelayed(mTick, TICK_MS);
+    }
+  }
+
+  private void touchLru(Node node) {
+    if (node == mLruTail) {
+      return;
+    }
+    unlinkLru(node);
+    node.mLruPrevious = mLruTail;
+    if (mLruTail != null) {
+      mLruTail.mLruNext = node;
+    } else {
+      mLruHead = node;
+    }
+    mLruTail = node;
+    node.mInLru = true;
+  }
+
+  private void unlinkLru(Node node) {
+    if (!node.mInLru) {
+      return;
+    }
+    if (node.mLruPrevious != null) {
+      node.mLruPrevious.mLruNext = node.mLruNext;
+    } else {
+      mLruHead = node.mLruNext;
+    }
+    if (node.mLruNext != null) {
+      node.mLruNext.mLruPrevious = node.mLruPrevious;
+    } else {
+      mLruTail = node.mLruPrevious;
+    }
+    node.mLruPrevious = null;
+    node.mLruNext = null;
+    node.mInLru = false;
+  }
+
+  private void postEvict() {
+    if (mBudget > 0 && mBytes > mBudget && !mEvictPosted) {
+      mEvictPosted = true;
+      mHandler.post(mEvict);
+    }
+  }
+
+  private void evict() {
+    while (mBudget > 0 && mBytes > mBudget && mLruHead != null) {
+      final Node node = mLruHead;
+      unlinkLru(node);
+      if (!node.mAccount.mReleased) {
+        mCallback.onExpired(node.mScope, node.mId, node.mField);
+      }
+    }
+  }
+
+  private void sweep() {
+    for (int slot = 0; slot < WHEEL_SIZE; slot++) {
+      Node node = mWheel[slot];
+      while (node != null) {
+        final Node next = node.mTimerNext;
+        if (node.mAccount.mReleased) {
+          unschedule(node);
+        }
+        node = next;
+      }
+    }
+    Node node = mLruHead;
+    while (node != null) {
+      final Node next = node.mLruNext;
+      if (node.mAccount.mReleased) {
+        unlinkLru(node);
+      }
+      node = next;
+    }
+    // Released nodes that were in neither structure are already unreachable
+    mNodeCount -= mReleasedNodeCount;
+    mReleasedNodeCount = 0;
+  }
+}
@@ -0,0 +1,234 @@
+package com.statuspoc;
+
+import android.content.res.AssetManager;
+import android.os.Handler;
+import android.os.Looper;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Estimates the strength of a secure field, as a score from 0 to {@link #MAX_SCORE}.
+ *
+ * Like zxcvbn, the value is split into the cheapest sequence of patterns an attacker would try:
+ * common passwords, repeated chars, sequences like "abc", keyboard walks like "qwer", and brute
+ * force for the rest. The cost of the first i chars only depends on those chars, so after an edit
+ * only the costs from the edit onwards are recomputed, and typing at the end of a field scores one
+ * char.
+ *
+ * Scoring runs on a background thread, on a copy of the value that only receives the chars from
+ * the first edit onwards. At most one scoring per field runs at a time: edits made meanwhile are
+ * scored together once it is done, so fast typing never queues work.
+ */
+final class SecureStrengthEstimator implements SecureField.EditListener {
+
+  interface Listener {
+    void onStrengthChanged(int score);
+  }
+
+  static final int MAX_SCORE = 4;
+  // log2 of the guesses above which each score starts: 10^3, 10^6, 10^8 and 10^10, as in zxcvbn
+  private static final double[] SCORE_BITS = {9.97, 19.93, 26.58, 33.22};
+  private static final int MIN_PATTERN_LENGTH = 3;
+  // About log2 of the number of neighbours of a key
+  private static final double WALK_STEP_BITS = 2.2;
+  private static final double LN_2 = Math.log(2);
+  private static final int CLEAN = Integer.MAX_VALUE;
+
+  private static final Executor executor = Executors.newSingleThreadExecutor();
+  private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+  private final SecureField mField;
+  private final AssetManager mAssets;
+  private final Listener mListener;
+  // UI thread only
+  private int mScore = -1;
+  private int mDirtyFrom = 0;
+  private boolean mScoring;
+  private boolean mClosed;
+
+  // Owned by the background thread while scoring, by the UI thread otherwise. Index i of the
+  // arrays is about the first i chars: their cost in bits, and where the run, sequence and walk
+  // ending with char i - 1 start.
+  private char[] mChars = new char[0];
+  private int mLength;
+  private double[] mBits = new double[1];
+  private int[] mRunStarts = new int[1];
+  private int[] mSequenceStarts = new int[1];
+  private int[] mWalkStarts = new int[1];
+  private int mScoreFrom;
+  private int mResult;
+
+  private final Runnable mScoreJob = new Runnable() {
+    @Override
+    public void run() {
+      score(SecureStrengthIndex.get(mAssets));
+      mainHandler.post(mDeliver);
+    }
+  };
+
+  private final Runnable mDeliver = new Runnable() {
+    @Override
+    public void run() {
+      mScoring = false;
+      if (mClosed) {
+        wipe();
+        return;
+      }
+      if (mResult != mScore) {
+        mScore = mResult;
+        mListener.onStrengthChanged(mResult);
+      }
+      if (mDirtyFrom != CLEAN) {
+        schedule();
+      }
+    }
+  };
+
+  SecureStrengthEstimator(SecureField field, AssetManager assets, Listener listener) {
+    mField = field;
+    mAssets = assets;
+    mListener = listener;
+    field.addEditListener(this);
+    schedule();
+  }
+
+  SecureField getField() {
+    return mField;
+  }
+
+  void close() {
+    mField.removeEditListener(this);
+    mClosed = true;
+    if (!mScoring) {
+      wipe();
+    }
+  }
+
+  @Override
+  public void onBeforeReplace(SecureBuffer value, int start, int before) {
+    mDirtyFrom = Math.min(mDirtyFrom, start);
+  }
+
+  @Override
+  public void onAfterReplace(SecureBuffer value, int start, int count) {
+    schedule();
+  }
+
+  // Copies what changed to the background thread's copy and scores it, unless that is in use
+  private void schedule() {
+    if (mScoring || mClosed) {
+      return;
+    }
+
+    final SecureBuffer value = mField.getValue();
+    final int length = value.length();
+    final int from = Math.min(mDirtyFrom, length);
+    mDirtyFrom = CLEAN;
+    if (length > mChars.length) {
+      grow(Math.max(length, mChars.length * 2));
+    }
+    value.getChars(from, length, mChars, from);
+    if (length < mLength) {
+      Arrays.fill(mChars, length, mLength, '\0');
+    }
+    mLength = length;
+    mScoreFrom = from;
+    mScoring = true;
+    executor.execute(mScoreJob);
+  }
+
+  private void grow(int capacity) {
+    final char[] chars = Arrays.copyOf(mChars, capacity);
+    Arrays.fill(mChars, '\0');
+    mChars = chars;
+    mBits = Arrays.copyOf(mBits, capacity + 1);
+    mRunStarts = Arrays.copyOf(mRunStarts, capacity + 1);
+    mSequenceStarts = Arrays.copyOf(mSequenceStarts, capacity + 1);
+    mWalkStarts = Arrays.copyOf(mWalkStarts, capacity + 1);
+  }
+
+  // Background thread
+  private void score(SecureStrengthIndex index) {
+    for (int i = mScoreFrom + 1; i <= mLength; i++) {
+      final char c = mChars[i - 1];
+      final char previous = i >= 2 ? mChars[i - 2] : '\0';
+      double best = mBits[i - 1] + log2(cardinality(c));
+
+      final int run = i >= 2 && previous == c ? mRunStarts[i - 1] : i - 1;
+      mRunStarts[i] = run;
+      if (i - run >= MIN_PATTERN_LENGTH) {
+        best = Math.min(best, mBits[run] + log2(cardinality(c)) + log2(i - run));
+      }
+
+      final int delta = c - previous;
+      int sequence = i - 1;
+      if (i >= 2 && (delta == 1 || delta == -1)) {
+        sequence = i >= 3 && previous - mChars[i - 3] == delta ? mSequenceStarts[i - 1] : i - 2;
+      }
+      mSequenceStarts[i] = sequence;
+      if (i - sequence >= MIN_PATTERN_LENGTH) {
+        // Descending sequences are tried after ascending ones
+        best = Math.min(best, mBits[sequence] + log2(cardinality(mChars[sequence]))
+            + log2(i - sequence) + (delta < 0 ? 1 : 0));
+      }
+
+      final int walk = i >= 2 && index.isAdjacent(previous, c) ? mWalkStarts[i - 1] : i - 1;
+      mWalkStarts[i] = walk;
+      if (i - walk >= MIN_PATTERN_LENGTH) {
+        best = Math.min(best, mBits[walk] + log2(index.getKeyCount())
+            + (i - walk - 1) * WALK_STEP_BITS);
+      }
+
+      // Words ending with this char, and one more bit if any of their chars was upper case
+      int node = SecureStrengthIndex.ROOT;
+      boolean upperCase = false;
+      for (int j = i - 1; j >= 0 && i - j <= SecureStrengthIndex.MAX_WORD_LENGTH; j--) {
+        node = index.getChild(node, SecureStrengthIndex.fold(mChars[j]));
+        if (node < 0) {
+          break;
+        }
+        upperCase |= Character.isUpperCase(mChars[j]);
+        final int rank = index.getRank(node);
+        if (rank > 0) {
+          best = Math.min(best, mBits[j] + log2(rank) + (upperCase ? 1 : 0));
+        }
+      }
+
+      mBits[i] = best;
+    }
+
+    int score = 0;
+    while (score < MAX_SCORE && mBits[mLength] >= SCORE_BITS[score]) {
+      score++;
+    }
+    mResult = score;
+  }
+
+  // Number of chars of the same kind as c
+  private static int cardinality(char c) {
+    if (c >= '0' && c <= '9') {
+      return 10;
+    }
+    if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) {
+      return 26;
+    }
+    if (c >= ' ' && c <= '~') {
+      return 33;
+    }
+    return 100;
+  }
+
+  private static double log2(double x) {
+    return Math.log(x) / LN_2;
+  }
+
+  private void wipe() {
+    Arrays.fill(mChars, '\0');
+    Arrays.fill(mBits, 0);
+    Arrays.fill(mRunStarts, 0);
+    Arrays.fill(mSequenceStarts, 0);
+    Arrays.fill(mWalkStarts, 0);
+    mLength = 0;
+  }
+}
@@ -0,0 +1,38 @@
+package com.statuspoc;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.uimanager.events.Event;
+import com.facebook.react.uimanager.events.RCTEventEmitter;
+
+/**
+ * Event emitted when the estimated strength of a secure field changes. It only carries the score,
+ * from 0 to {@link SecureStrengthEstimator#MAX_SCORE}.
+ */
+public class SecureStrengthEvent extends Event<SecureStrengthEvent> {
+
+  public static final String EVENT_NAME = "topStrengthChange";
+
+  private final int mScore;
+
+  public SecureStrengthEvent(int viewId, int score) {
+    super(viewId);
+    mScore = score;
+  }
+
+  @Override
+  public String getEventName() {
+    return EVENT_NAME;
+  }
+
+  @Override
+  public void dispatch(RCTEventEmitter rctEventEmitter) {
+    rctEventEmitter.receiveEvent(getViewTag(), getEventName(), serializeEventData());
+  }
+
+  private WritableMap serializeEventData() {
+    WritableMap eventData = Arguments.createMap();
+    eventData.putInt("score", mScore);
+    return eventData;
+  }
+}
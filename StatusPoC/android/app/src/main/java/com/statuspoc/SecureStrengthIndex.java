@@ -0,0 +1,208 @@
+package com.statuspoc;
+
+import android.content.res.AssetManager;
+import android.util.Log;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.Arrays;
+
+import javax.annotation.Nullable;
+
+/**
+ * The common passwords and the keyboard layout SecureStrengthEstimator looks for, loaded from an
+ * asset the first time a field is scored.
+ *
+ * Words are kept in a trie of their reversed, folded chars: walking it from the end of a value
+ * backwards finds every word ending there, so appending a char only looks up the words ending with
+ * it. The trie is stored in parallel arrays, a node's children being a linked list.
+ */
+final class SecureStrengthIndex {
+
+  private static final String ASSET = "secure_strength.txt";
+  /*package*/ static final int ROOT = 0;
+  /*package*/ static final int MAX_WORD_LENGTH = 32;
+  private static final int NO_KEY = -1;
+
+  private static @Nullable SecureStrengthIndex instance;
+
+  private char[] mLabels = new char[256];
+  private int[] mFirstChild = new int[256];
+  private int[] mNextSibling = new int[256];
+  // 1-based rank of the word ending at a node, 0 if none does
+  private int[] mRanks = new int[256];
+  private int mNodeCount = 1;
+
+  // Keyboard position of each ASCII char, as (row << 8) | column, or NO_KEY
+  private final int[] mKeys = new int[128];
+  private int mKeyCount;
+
+  private SecureStrengthIndex() {
+    Arrays.fill(mFirstChild, -1);
+    Arrays.fill(mNextSibling, -1);
+    Arrays.fill(mKeys, NO_KEY);
+  }
+
+  /**
+   * Returns the index, loading it on the first call. Does I/O, so must not be called on the UI
+   * thread. A missing or unreadable asset leaves the index empty.
+   */
+  static synchronized SecureStrengthIndex get(AssetManager assets) {
+    if (instance == null) {
+      instance = new SecureStrengthIndex();
+      instance.load(assets);
+    }
+    return instance;
+  }
+
+  /**
+   * Maps a char to the one it is indexed by: lower case, with common substitutions undone.
+   */
+  static char fold(char c) {
+    switch (c) {
+      case '0':
+        return 'o';
+      case '1':
+      case '!':
+        return 'i';
+      case '3':
+        return 'e';
+      case '4':
+      case '@':
+        return 'a';
+      case '5':
+      case '$':
+        return 's';
+      case '7':
+        return 't';
+      default:
+        return Character.toLowerCase(c);
+    }
+  }
+
+  /**
+   * Returns the child of {@code node} labeled with the folded char {@code c}, or -1.
+   */
+  int getChild(int node, char c) {
+    for (int child = mFirstChild[node]; child >= 0; child = mNextSibling[child]) {
+      if (mLabels[child] == c) {
+        return child;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the 1-based rank of the word spelled by the path to {@code node}, or 0.
+   */
+  int getRank(int node) {
+    return mRanks[node];
+  }
+
+  int getKeyCount() {
+    return mKeyCount;
+  }
+
+  /**
+   * Returns whether the keys of {@code a} and {@code b} touch on the keyboard.
+   */
+  boolean isAdjacent(char a, char b) {
+    final int keyA = a < mKeys.length ? mKeys[Character.toLowerCase(a)] : NO_KEY;
+    final int keyB = b < mKeys.length ? mKeys[Character.toLowerCase(b)] : NO_KEY;
+    if (keyA == NO_KEY || keyB == NO_KEY || keyA == keyB) {
+      return false;
+    }
+
+    final int rows = (keyB >> 8) - (keyA >> 8);
+    final int columns = (keyB & 0xff) - (keyA & 0xff);
+    switch (rows) {
+      case 0:
+        return columns == 1 || columns == -1;
+      case 1:
+        // The row below is shifted right by half a key
+        return columns == 0 || columns == -1;
+      case -1:
+        return columns == 0 || columns == 1;
+      default:
+        return false;
+    }
+  }
+
+  private void load(AssetManager assets) {
+    BufferedReader reader = null;
+    try {
+      reader = new BufferedReader(new InputStreamReader(assets.open(ASSET), "UTF-8"));
+      int rank = 0;
+      int row = 0;
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.isEmpty() || line.charAt(0) == '#') {
+          continue;
+        }
+        if (line.charAt(0) == '!') {
+          addKeyboardRow(row++, line);
+        } else {
+          addWord(line, ++rank);
+        }
+      }
+    } catch (IOException e) {
+      Log.w("SecureStrengthIndex", "Can't load " + ASSET, e);
+    } finally {
+      if (reader != null) {
+        try {
+          reader.close();
+        } catch (IOException e) {
+          // Nothing left to read
+        }
+      }
+    }
+  }
+
+  private void addKeyboardRow(int row, String keys) {
+    for (int column = 1; column < keys.length(); column++) {
+      final char key = keys.charAt(column);
+      if (key < mKeys.length && mKeys[key] == NO_KEY) {
+        mKeys[key] = (row << 8) | (column - 1);
+        mKeyCount++;
+      }
+    }
+  }
+
+  private void addWord(String word, int rank) {
+    if (word.length() > MAX_WORD_LENGTH) {
+      return;
+    }
+
+    int node = ROOT;
+    for (int i = word.length() - 1; i >= 0; i--) {
+      final char c = fold(word.charAt(i));
+      int child = getChild(node, c);
+      if (child < 0) {
+        child = addNode(node, c);
+      }
+      node = child;
+    }
+    // Keeps the better rank of duplicates
+    if (mRanks[node] == 0) {
+      mRanks[node] = rank;
+    }
+  }
+
+  private int addNode(int parent, char c) {
+    if (mNodeCount == mLabels.length) {
+      final int capacity = mNodeCount * 2;
+      mLabels = Arrays.copyOf(mLabels, capacity);
+      mRanks = Arrays.copyOf(mRanks, capacity);
+      mFirstChild = Arrays.copyOf(mFirstChild, capacity);
+      mNextSibling = Arrays.copyOf(mNextSibling, capacity);
+      Arrays.fill(mFirstChild, mNodeCount, capacity, -1);
+      Arrays.fill(mNextSibling, mNodeCount, capacity, -1);
+    }
+
+    final int node = mNodeCount++;
+    mLabels[node] = c;
+    mNextSibling[node] = mFirstChild[parent];
+    mFirstChild[parent] = node;
+    return node;
+  }
+}
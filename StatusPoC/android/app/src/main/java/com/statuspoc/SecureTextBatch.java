@@ -0,0 +1,159 @@
+package com.statuspoc;
+
+import android.util.ArrayMap;
+import android.view.Choreographer;
+import com.facebook.react.bridge.UiThreadUtil;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+/**
+ * Values set from native code, waiting to be applied to the registry and the views.
+ *
+ * Values can be set from any thread. They are applied on the UI thread at the next frame, once per
+ * field, so setting many fields or the same field many times in a row only costs one text change
+ * per view. A batch without a target only holds its values, until they are moved to another batch
+ * with {@link #drainTo(SecureTextBatch)}.
+ */
+final class SecureTextBatch {
+
+  interface Target {
+    /**
+     * Called on the UI thread with the last value set for a field.
+     */
+    void apply(String scope, String id, String value);
+  }
+
+  private final @Nullable Target mTarget;
+  private final Object mLock = new Object();
+  // By scope, then by registration ID. Guarded by mLock.
+  private ArrayMap<String, ArrayMap<String, String>> mPending =
+      new ArrayMap<String, ArrayMap<String, String>>();
+  private boolean mFramePosted;
+
+  private final Choreographer.FrameCallback mFrameCallback = new Choreographer.FrameCallback() {
+    @Override
+    public void doFrame(long frameTimeNanos) {
+      flush();
+    }
+  };
+  private final Runnable mPostFrame = new Runnable() {
+    @Override
+    public void run() {
+      Choreographer.getInstance().postFrameCallback(mFrameCallback);
+    }
+  };
+
+  SecureTextBatch(@Nullable Target target) {
+    mTarget = target;
+  }
+
+  void put(String scope, String id, String value) {
+    if (id == null || value == null) {
+      throw new IllegalArgumentException("setText: id and value must not be null");
+    }
+    synchronized (mLock) {
+      getOrCreateScope(scope).put(id, value);
+      postFrame();
+    }
+  }
+
+  void putAll(String scope, Map<String, String> values) {
+    synchronized (mLock) {
+      final ArrayMap<String, String> pending = getOrCreateScope(scope);
+      for (Map.Entry<String, String> entry : values.entrySet()) {
+        if (entry.getKey() == null || entry.getValue() == null) {
+          throw new IllegalArgumentException("setTexts: ids and values must not be null");
+        }
+        pending.put(entry.getKey(), entry.getValue());
+      }
+      postFrame();
+    }
+  }
+
+  /**
+   * Returns the value waiting to be applied to a field, if any.
+   */
+  @Nullable String get(String scope, String id) {
+    synchronized (mLock) {
+      final ArrayMap<String, String> pending = mPending.get(scope);
+      return pending != null ? pending.get(id) : null;
+    }
+  }
+
+  /**
+   * Drops the values waiting to be applied to the fields of a scope.
+   */
+  void remove(String scope) {
+    synchronized (mLock) {
+      mPending.remove(scope);
+    }
+  }
+
+  /**
+   * Drops all the values waiting to be applied.
+   */
+  void clear() {
+    synchronized (mLock) {
+      mPending.clear();
+    }
+  }
+
+  /**
+   * Moves the values waiting to be applied to {@code other}, which applies them instead.
+   */
+  void drainTo(SecureTextBatch other) {
+    final ArrayMap<String, ArrayMap<String, String>> pending;
+    synchronized (mLock) {
+      pending = mPending;
+      mPending = new ArrayMap<String, ArrayMap<String, String>>();
+    }
+    for (int i = 0; i < pending.size(); i++) {
+      other.putAll(pending.keyAt(i), pending.valueAt(i));
+    }
+  }
+
+  /**
+   * Applies the pending values right away. Must be called on the UI thread.
+   */
+  void flush() {
+    final ArrayMap<String, ArrayMap<String, String>> applying;
+    synchronized (mLock) {
+      mFramePosted = false;
+      if (mPending.isEmpty() || mTarget == null) {
+        return;
+      }
+      // Values set while applying wait for the next frame
+      applying = mPending;
+      mPending = new ArrayMap<String, ArrayMap<String, String>>();
+    }
+
+    for (int i = 0; i < applying.size(); i++) {
+      final ArrayMap<String, String> values = applying.valueAt(i);
+      for (int j = 0; j < values.size(); j++) {
+        mTarget.apply(applying.keyAt(i), values.keyAt(j), values.valueAt(j));
+      }
+    }
+  }
+
+  private ArrayMap<String, String> getOrCreateScope(String scope) {
+    ArrayMap<String, String> pending = mPending.get(scope);
+    if (pending == null) {
+      pending = new ArrayMap<String, String>();
+      mPending.put(scope, pending);
+    }
+    return pending;
+  }
+
+  private void postFrame() {
+    if (mFramePosted || mTarget == null) {
+      return;
+    }
+    mFramePosted = true;
+    if (UiThreadUtil.isOnUiThread()) {
+      mPostFrame.run();
+    } else {
+      UiThreadUtil.runOnUiThread(mPostFrame);
+    }
+  }
+}
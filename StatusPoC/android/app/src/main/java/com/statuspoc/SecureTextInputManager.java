@@ -1,15 +1,16 @@
 package com.statuspoc;
 
+import android.os.SystemClock;
 import android.util.Log;
 import android.text.Editable;
 import android.text.InputType;
 import android.text.TextWatcher;
 import android.util.TypedValue;
 import android.widget.EditText;
-import android.util.ArrayMap;
 import com.facebook.infer.annotation.Assertions;
 import com.facebook.react.bridge.ReactContext;
 import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.UiThreadUtil;
 import com.facebook.react.common.MapBuilder;
 import com.facebook.react.module.annotations.ReactModule;
 import com.facebook.react.uimanager.BaseViewManager;
@@ -25,23 +26,27 @@ import com.facebook.react.uimanager.annotations.ReactPropGroup;
 import com.facebook.react.uimanager.events.EventDispatcher;
 import com.facebook.react.views.text.ReactTextUpdate;
 import com.facebook.react.views.textinput.ContentSizeWatcher;
-import com.facebook.react.views.textinput.ReactTextInputShadowNode;
 import com.facebook.react.views.textinput.ReactContentSizeChangedEvent;
 import com.facebook.yoga.YogaConstants;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 import javax.annotation.Nullable;
 
 /**
  * Manages instances of SecureTextInput2.
+ *
+ * The static methods are the facade native code reaches the fields through. setText() and
+ * setTexts() can be called from any thread. The others read or edit the registry and the views,
+ * which belong to the UI thread, and must be called on it.
  */
 @ReactModule(name = SecureTextInputManager.REACT_CLASS)
 public class SecureTextInputManager extends BaseViewManager<SecureEditText, LayoutShadowNode> {
 
   protected static final String REACT_CLASS = "RCTSecureTextInput2";
-  private static final ArrayMap<String, String> registrationMap = new ArrayMap<String, String>();
-  private static final ArrayMap<EditText, String> viewToIdMap = new ArrayMap<EditText, String>();
-  private static final ArrayMap<String, EditText> idToViewMap = new ArrayMap<String, EditText>();
+  private static final int MAX_UTF8_BYTES_PER_CHAR = 3;
 
   private static final int[] SPACING_TYPES = {
       Spacing.ALL, Spacing.LEFT, Spacing.RIGHT, Spacing.TOP, Spacing.BOTTOM,
@@ -49,6 +54,8 @@ public class SecureTextInputManager extends BaseViewManager<SecureEditText, Layo
 
   private static final int FOCUS_TEXT_INPUT = 1;
   private static final int BLUR_TEXT_INPUT = 2;
+  private static final int UNDO = 3;
+  private static final int REDO = 4;
 
   private static final int INPUT_TYPE_KEYBOARD_NUMBER_PAD = InputType.TYPE_CLASS_NUMBER; 
   private static final int INPUT_TYPE_KEYBOARD_DECIMAL_PAD = INPUT_TYPE_KEYBOARD_NUMBER_PAD |
@@ -68,8 +75,13 @@ public class SecureTextInputManager extends BaseViewManager<SecureEditText, Layo
   private static final String KEYBOARD_TYPE_NUMBER_PAD = "number-pad";
   private static final String KEYBOARD_TYPE_PHONE_PAD = "phone-pad";
   private static final String KEYBOARD_TYPE_VISIBLE_PASSWORD = "visible-password";
+  private static final String KEYPAD_NUMERIC = "numeric";
   // private static final InputFilter[] EMPTY_FILTERS = new InputFilter[0];
   private static final int UNSET = -1;
+
+  // Inserts longer than this are copied into the registry over several frames, see BulkInsert
+  private static final int BULK_INSERT_THRESHOLD = 4096;
+  private static final int BULK_INSERT_CHUNK = 2048;
           
   @Override
   public String getName() {
@@ -85,29 +97,578 @@ public class SecureTextInputManager extends BaseViewManager<SecureEditText, Layo
       throw new IllegalArgumentException("id");
     }
 
-    if (!registrationMap.containsKey(id)) {
-      registrationMap.put(id, view.getText().toString());
+    // Registered in onAfterUpdateTransaction, once the scope is known as well
+    view.setStagedRegistrationId(id);
+  }
+
+  @ReactProp(name = "registrationScope")
+  public void setRegistrationScope(SecureEditText view, @Nullable String scope) {
+    view.setStagedRegistrationScope(scope);
+  }
+
+  private void commitStagedRegistration(SecureEditText view) {
+    final String id = view.getStagedRegistrationId();
+    final String scope = view.getStagedRegistrationScope() != null
+        ? view.getStagedRegistrationScope()
+        : SecureRegistry.DEFAULT_SCOPE;
+    if (id == null
+        || (id.equals(view.getRegistrationId()) && scope.equals(view.getRegistrationScope()))) {
+      return;
+    }
+
+    if (view.getRegistrationId() != null) {
+      // The previous entry is dropped as if the view had been detached
+      unregister(view);
     }
-    viewToIdMap.put(view, id);
-    idToViewMap.put(id, view);
+    final SecureRegistry registry = registryOf(view);
+    final SecureField field = registry.register(view, scope, id);
+    registry.getRetention().setTtl(field, view.getRetentionTtl());
+    view.invalidateGroup();
 
-    view.addTextChangedListener(new SecureReactTextInputTextWatcher(view));
+    // The registration can change any number of times, but the view only ever needs one watcher
+    if (view.getTextWatcher() == null) {
+      view.addTextChangedListener(new SecureReactTextInputTextWatcher(view));
+    }
     // view.setOnKeyPress(false);
   }
 
+  /**
+   * Creates the registry of a React instance, see SecureRegistryModule.
+   */
+  /*package*/ static SecureRegistry createRegistry() {
+    return new SecureRegistry(
+        new SecureRetention.Callback() {
+          @Override
+          public void onExpired(SecureRegistry.Scope scope, String id, SecureField field) {
+            final SecureEditText view = scope.getView(id);
+            if (view == null) {
+              scope.removeField(id);
+              return;
+            }
+
+            // Cleared through the view, so the registry and what depends on it follow as for any
+            // other edit. The history would otherwise still hold the expired value.
+            cancelBulkInsert(view);
+            view.cancelLoad();
+            view.getText().clear();
+            field.getHistory().clear();
+          }
+        },
+        new SecureRegistry.FieldListener() {
+          @Override
+          public void onFieldChanged(SecureRegistry.Scope scope, String id) {
+            final ArrayList<SecureEditText> matchers = scope.getMatchers(id);
+            // Backwards, as rebinding a match can remove its view from the list
+            for (int i = matchers != null ? matchers.size() - 1 : -1; i >= 0; i--) {
+              final SecureEditText view = matchers.get(i);
+              final SecureField field = scope.getField(view.getRegistrationId());
+              if (field != null) {
+                updateMatch(view, field);
+              }
+            }
+          }
+        });
+  }
+
+  /**
+   * Creates the batch of values set from native code for {@code registry}.
+   */
+  /*package*/ static SecureTextBatch createTextBatch(final SecureRegistry registry) {
+    return new SecureTextBatch(
+        new SecureTextBatch.Target() {
+          @Override
+          public void apply(String scope, String id, String value) {
+            applyText(registry, scope, id, value);
+          }
+        });
+  }
+
+  /**
+   * Wipes a whole registry, once its React instance is destroyed. Views still attached are cleared,
+   * and stop updating the registry.
+   */
+  /*package*/ static void destroyRegistry(SecureRegistry registry) {
+    while (registry.getScopeCount() > 0) {
+      destroyScope(registry.removeScope(registry.getScopeAt(0).getName()));
+    }
+    registry.getRetention().stop();
+  }
+
+  // The registry of the React instance of a view
+  private static SecureRegistry registryOf(EditText view) {
+    return SecureRegistryModule.get(view.getContext()).getRegistry();
+  }
+
+  // The registry native callers without a context deal with, see SecureRegistryModule, once the
+  // values waiting to be applied to it are. Applying them edits the registry and the views, so
+  // this is only for the UI thread.
+  private static @Nullable SecureRegistry getCurrentRegistry() {
+    UiThreadUtil.assertOnUiThread();
+    final SecureRegistryModule module = SecureRegistryModule.getCurrent();
+    if (module == null) {
+      return null;
+    }
+    module.getTextBatch().flush();
+    return module.getRegistry();
+  }
+
+  /*package*/ static int getRegistrySize() {
+    final SecureRegistryModule module = SecureRegistryModule.getCurrent();
+    return module != null ? module.getRegistry().getFieldCount() : 0;
+  }
+
+  /*package*/ static int getRegisteredViewCount() {
+    final SecureRegistryModule module = SecureRegistryModule.getCurrent();
+    return module != null ? module.getRegistry().getViewCount() : 0;
+  }
+
+  /*package*/ static int getScopeCount() {
+    final SecureRegistryModule module = SecureRegistryModule.getCurrent();
+    return module != null ? module.getRegistry().getScopeCount() : 0;
+  }
+
+  private static @Nullable SecureMemoryTrimmer.Stats getTrimStats(int level) {
+    final SecureRegistryModule module = SecureRegistryModule.getCurrent();
+    return module != null ? module.getTrimmer().getStats(level) : null;
+  }
+
+  /**
+   * Returns how many times memory was trimmed at {@code level}, one of the
+   * {@code ComponentCallbacks2.TRIM_MEMORY_*} constants.
+   */
+  public static int getTrimCount(int level) {
+    final SecureMemoryTrimmer.Stats stats = getTrimStats(level);
+    return stats != null ? stats.getTrimCount() : 0;
+  }
+
+  /**
+   * Returns how many bytes of buffers, histories and digests the trims at {@code level} released.
+   */
+  public static long getTrimReleasedBytes(int level) {
+    final SecureMemoryTrimmer.Stats stats = getTrimStats(level);
+    return stats != null ? stats.getReleasedBytes() : 0;
+  }
+
+  /**
+   * Returns how many cached measurements the trims at {@code level} dropped.
+   */
+  public static int getTrimDroppedCacheEntries(int level) {
+    final SecureMemoryTrimmer.Stats stats = getTrimStats(level);
+    return stats != null ? stats.getDroppedCacheEntries() : 0;
+  }
+
+  /**
+   * Returns how many values of fields without a view the trims at {@code level} wiped.
+   */
+  public static int getTrimWipedFields(int level) {
+    final SecureMemoryTrimmer.Stats stats = getTrimStats(level);
+    return stats != null ? stats.getWipedFields() : 0;
+  }
+
   public static String getText(final String id) {
-    return registrationMap.get(id);
+    return getText(null, id);
+  }
+
+  /**
+   * Returns a copy of the value of a field, or null if there is no such field. Must be called on
+   * the UI thread, as it finishes the pending edits of the view.
+   */
+  public static String getText(@Nullable final String scope, final String id) {
+    UiThreadUtil.assertOnUiThread();
+    final String pending =
+        SecureRegistryModule.getCurrentTextBatch().get(SecureRegistry.resolve(scope), id);
+    if (pending != null) {
+      return pending;
+    }
+    final SecureRegistryModule module = SecureRegistryModule.getCurrent();
+    if (module == null) {
+      return null;
+    }
+    final SecureRegistry registry = module.getRegistry();
+    finishBulkInsert(registry.getView(scope, id));
+    final SecureField field = registry.getField(scope, id);
+    return field != null ? field.getValue().toString() : null;
   }
 
   public static void setText(final String id, final String value) {
-    registrationMap.put(id, value);
+    setText(null, id, value);
+  }
 
-    Log.d(REACT_CLASS, "setText called with " + value);
-    final EditText view = idToViewMap.get(id);
+  /**
+   * Sets the value of a field. This can be called from any thread: the value is applied to the
+   * registry and the view on the next frame, and only the last value set by then is rendered.
+   */
+  public static void setText(@Nullable final String scope, final String id, final String value) {
+    SecureRegistryModule.getCurrentTextBatch().put(SecureRegistry.resolve(scope), id, value);
+  }
+
+  public static void setTexts(final Map<String, String> values) {
+    setTexts(null, values);
+  }
+
+  /**
+   * Sets the values of several fields of a scope, by registration ID, as setText() does.
+   */
+  public static void setTexts(@Nullable final String scope, final Map<String, String> values) {
+    SecureRegistryModule.getCurrentTextBatch().putAll(SecureRegistry.resolve(scope), values);
+  }
+
+  private static void applyText(SecureRegistry registry, String scope, String id, String value) {
+    final SecureEditText view = registry.getView(scope, id);
+    cancelBulkInsert(view);
+    final SecureField field = registry.getOrCreateScope(scope).getOrCreateField(id);
+    field.setValue(value);
     if (view != null) {
-      view.setText(value);
-      Log.d(REACT_CLASS, "called setText on EditText with " + value);
+      view.loadText(field.getValue());
+    }
+  }
+
+  /**
+   * Wipes every field of a scope at once, e.g. when leaving the flow that owns it. Views of the
+   * scope that are still attached are cleared, and stop updating the registry.
+   */
+  public static void destroyScope(@Nullable final String scope) {
+    UiThreadUtil.assertOnUiThread();
+    final SecureRegistryModule module = SecureRegistryModule.getCurrent();
+    if (module == null) {
+      return;
+    }
+    module.getTextBatch().remove(SecureRegistry.resolve(scope));
+    final SecureRegistry.Scope removed = module.getRegistry().removeScope(scope);
+    if (removed != null) {
+      destroyScope(removed);
+    }
+  }
+
+  private static void destroyScope(SecureRegistry.Scope removed) {
+    for (int i = 0; i < removed.getViewCount(); i++) {
+      final SecureEditText view = removed.getViewAt(i);
+      cancelBulkInsert(view);
+      view.cancelLoad();
+      // The matchers of the scope are dropped with it
+      unbindMatch(view, null);
+      view.setRegistration(null, null);
+      view.getText().clear();
     }
+    removed.wipe();
+  }
+
+  /**
+   * Receives a read-only view of a secure value. The view is only valid during the call: it must
+   * not be kept, and should not be copied into a String.
+   */
+  public interface Borrower {
+    void borrow(CharSequence text);
+  }
+
+  /**
+   * Lends the value of the given field to {@code borrower} without copying it. Returns false if
+   * there is no such field.
+   */
+  public static boolean borrowText(
+      @Nullable final String scope,
+      final String id,
+      final Borrower borrower) {
+    final SecureRegistry registry = getCurrentRegistry();
+    if (registry == null) {
+      return false;
+    }
+    finishBulkInsert(registry.getView(scope, id));
+    final SecureField field = registry.getField(scope, id);
+    if (field == null) {
+      return false;
+    }
+    borrower.borrow(field.getValue());
+    return true;
+  }
+
+  /**
+   * Lends the values of the fields of a group to {@code borrower}, in {@code groupIndex} order and
+   * separated by spaces, without copying them. Returns false if there is no such group.
+   */
+  public static boolean borrowGroupText(
+      @Nullable final String scope,
+      final String groupId,
+      final Borrower borrower) {
+    final SecureRegistry registry = getCurrentRegistry();
+    if (registry == null) {
+      return false;
+    }
+    final SecureRegistry.Scope groupScope = registry.getScope(scope);
+    final SecureFieldGroup group = groupScope != null ? groupScope.getGroup(groupId) : null;
+    if (group == null) {
+      return false;
+    }
+    for (int i = 0; i < group.getMemberCount(); i++) {
+      finishBulkInsert(groupScope.getView(group.getMemberId(i)));
+    }
+    borrower.borrow(group);
+    return true;
+  }
+
+  public static String getGroupText(@Nullable final String scope, final String groupId) {
+    final String[] text = new String[1];
+    borrowGroupText(scope, groupId, new Borrower() {
+      @Override
+      public void borrow(CharSequence group) {
+        text[0] = group.toString();
+      }
+    });
+    return text[0];
+  }
+
+  /**
+   * Writes a 32-byte digest of the given field to {@code out}, e.g. to detect whether a value
+   * changed without reading it. It is the root of a SHA-256 hash tree over the value, not the
+   * SHA-256 of the value, so it is only comparable with other digests returned by this method.
+   * The digest is built on the first call for a field and maintained incrementally afterwards.
+   * Returns false if there is no such field.
+   */
+  public static boolean getDigest(
+      @Nullable final String scope,
+      final String id,
+      final byte[] out) {
+    if (out.length < SecureDigest.DIGEST_LENGTH) {
+      throw new IllegalArgumentException(
+          "getDigest: out must hold " + SecureDigest.DIGEST_LENGTH + " bytes");
+    }
+    final SecureRegistry registry = getCurrentRegistry();
+    if (registry == null) {
+      return false;
+    }
+    finishBulkInsert(registry.getView(scope, id));
+    final SecureField field = registry.getField(scope, id);
+    if (field == null) {
+      return false;
+    }
+    field.getDigest(out, 0);
+    return true;
+  }
+
+  /**
+   * Receives the UTF-8 encoding of a secure value in a direct buffer, between its position and its
+   * limit. Native code can read it in place, e.g. with {@code GetDirectBufferAddress}. The bytes are
+   * zeroed as soon as the call returns, so they must not be kept.
+   */
+  public interface Utf8Consumer {
+    void consume(ByteBuffer utf8);
+  }
+
+  /**
+   * Returns the number of bytes {@link #exportUtf8} may need for the given field, or -1 if there is
+   * no such field.
+   */
+  public static int getMaxUtf8Length(@Nullable final String scope, final String id) {
+    final SecureRegistry registry = getCurrentRegistry();
+    if (registry == null) {
+      return -1;
+    }
+    finishBulkInsert(registry.getView(scope, id));
+    final SecureField field = registry.getField(scope, id);
+    return field != null ? field.getValue().length() * MAX_UTF8_BYTES_PER_CHAR : -1;
+  }
+
+  /**
+   * Encodes the value of the given field as UTF-8 straight into {@code buffer}, from its start,
+   * and hands it to {@code consumer}. The value is never copied to the Java heap, and the buffer is
+   * zeroed afterwards. Returns false if there is no such field.
+   */
+  public static boolean exportUtf8(
+      @Nullable final String scope,
+      final String id,
+      final ByteBuffer buffer,
+      final Utf8Consumer consumer) {
+    if (!buffer.isDirect()) {
+      throw new IllegalArgumentException("exportUtf8: buffer must be direct");
+    }
+    final SecureRegistry registry = getCurrentRegistry();
+    if (registry == null) {
+      return false;
+    }
+    finishBulkInsert(registry.getView(scope, id));
+    final SecureField field = registry.getField(scope, id);
+    if (field == null) {
+      return false;
+    }
+
+    final SecureBuffer value = field.getValue();
+    final int length = value.getUtf8Length();
+    if (length < 0) {
+      throw new IllegalArgumentException("exportUtf8: value is not valid UTF-16");
+    }
+    if (length > buffer.capacity()) {
+      throw new IllegalArgumentException("exportUtf8: buffer must hold " + length + " bytes");
+    }
+
+    buffer.clear();
+    try {
+      // Encoded by hand, as a CharsetEncoder may keep chars in buffers of its own
+      value.encodeUtf8(buffer);
+      buffer.flip();
+      consumer.consume(buffer);
+    } finally {
+      buffer.clear();
+      while (buffer.hasRemaining()) {
+        buffer.put((byte) 0);
+      }
+      buffer.clear();
+    }
+    return true;
+  }
+
+  private static void joinGroup(SecureEditText view, SecureField field) {
+    final SecureRegistry.Scope scope = registryOf(view).getScope(view.getRegistrationScope());
+    scope.leaveGroup(field);
+    final String groupId = view.getGroup();
+    if (groupId == null) {
+      return;
+    }
+
+    SecureFieldGroup group = scope.getGroup(groupId);
+    if (group == null) {
+      group = new SecureFieldGroup(groupId);
+      group.addListener(new SecureGroupChangeDispatcher(scope));
+      scope.addGroup(group);
+    }
+    group.add(view.getRegistrationId(), view.getGroupIndex(), field);
+  }
+
+  /**
+   * Sends onGroupChange to the view of the last changed field of a group, when the number of
+   * fields, of filled fields or the validity of the group changes.
+   */
+  private static class SecureGroupChangeDispatcher implements SecureFieldGroup.Listener {
+    private final SecureRegistry.Scope mScope;
+    private int mFields;
+    private int mFilled;
+    private boolean mValid = true;
+
+    SecureGroupChangeDispatcher(SecureRegistry.Scope scope) {
+      mScope = scope;
+    }
+
+    @Override
+    public void onGroupChanged(SecureFieldGroup group, String memberId) {
+      final int fields = group.getMemberCount();
+      final int filled = group.getFilledCount();
+      final boolean valid = group.isValid();
+      if (fields == mFields && filled == mFilled && valid == mValid) {
+        return;
+      }
+
+      EditText view = mScope.getView(memberId);
+      for (int i = 0; view == null && i < fields; i++) {
+        view = mScope.getView(group.getMemberId(i));
+      }
+      if (view == null) {
+        return;
+      }
+      mFields = fields;
+      mFilled = filled;
+      mValid = valid;
+      ReactContext reactContext = (ReactContext) view.getContext();
+      reactContext.getNativeModule(UIManagerModule.class).getEventDispatcher().dispatchEvent(
+          new SecureGroupChangeEvent(view.getId(), group.getId(), fields, filled, valid));
+    }
+  }
+
+  public static boolean undo(final String id) {
+    return undo(null, id);
+  }
+
+  public static boolean redo(final String id) {
+    return redo(null, id);
+  }
+
+  /**
+   * Reverts the last group of edits (a word, or a burst of keystrokes) made to the given field.
+   * Returns false if there is nothing to undo.
+   */
+  public static boolean undo(@Nullable final String scope, final String id) {
+    final SecureRegistry registry = getCurrentRegistry();
+    if (registry == null) {
+      return false;
+    }
+    final SecureEditText view = registry.getView(scope, id);
+    finishBulkInsert(view);
+    final SecureField field = registry.getField(scope, id);
+    return field != null && field.getHistory().undo(getHistoryEditor(view, field));
+  }
+
+  /**
+   * Re-applies the last group of edits undone with {@link #undo(String, String)}.
+   * Returns false if there is nothing to redo.
+   */
+  public static boolean redo(@Nullable final String scope, final String id) {
+    final SecureRegistry registry = getCurrentRegistry();
+    if (registry == null) {
+      return false;
+    }
+    final SecureEditText view = registry.getView(scope, id);
+    finishBulkInsert(view);
+    final SecureField field = registry.getField(scope, id);
+    return field != null && field.getHistory().redo(getHistoryEditor(view, field));
+  }
+
+  /**
+   * Starts recording the timing and the positions of the edits made to the view of the given
+   * field, never their content. Returns false if the field has no view.
+   */
+  public static boolean startTrace(@Nullable final String scope, final String id) {
+    final SecureRegistry registry = getCurrentRegistry();
+    final SecureEditText view = registry != null ? registry.getView(scope, id) : null;
+    if (view == null) {
+      return false;
+    }
+
+    view.setTraceRecorder(new SecureEditTrace.Recorder(SystemClock.uptimeMillis()));
+    return true;
+  }
+
+  /**
+   * Stops recording the edits of the given field, and returns them as a binary trace, see
+   * {@link SecureEditTrace}. Returns null if they were not being recorded.
+   */
+  public static @Nullable byte[] stopTrace(@Nullable final String scope, final String id) {
+    final SecureRegistry registry = getCurrentRegistry();
+    final SecureEditText view = registry != null ? registry.getView(scope, id) : null;
+    final SecureEditTrace.Recorder recorder = view != null ? view.getTraceRecorder() : null;
+    if (recorder == null) {
+      return null;
+    }
+
+    view.setTraceRecorder(null);
+    return recorder.toByteArray();
+  }
+
+  /**
+   * Replays a trace into the given field with synthetic chars, as fast as possible. Goes through
+   * the view when it is attached, like typing would. Returns the number of edits replayed, or -1
+   * if there is no such field.
+   */
+  public static int replayTrace(@Nullable final String scope, final String id, byte[] trace) {
+    final SecureRegistry registry = getCurrentRegistry();
+    if (registry == null) {
+      return -1;
+    }
+    final SecureEditText view = registry.getView(scope, id);
+    finishBulkInsert(view);
+    final SecureField field = registry.getField(scope, id);
+    if (field == null) {
+      return -1;
+    }
+
+    final SecureEditTrace.Target target = view != null
+        ? SecureEditTrace.forEditable(view.getText())
+        : SecureEditTrace.forField(field);
+    return SecureEditTrace.replay(trace, target);
+  }
+
+  // Undo/redo go through the view when it is attached
+  private static SecureEditHistory.Editor getHistoryEditor(
+      @Nullable final SecureEditText view,
+      final SecureField field) {
+    return view != null ? view.getHistoryEditor() : field.getEditor();
   }
 
   @Override
@@ -124,41 +685,196 @@ public class SecureTextInputManager extends BaseViewManager<SecureEditText, Layo
 
   @Override
   public LayoutShadowNode createShadowNodeInstance() {
-    return new ReactTextInputShadowNode();
+    return new SecureTextInputShadowNode();
   }
 
   @Override
   public Class<? extends LayoutShadowNode> getShadowNodeClass() {
-    return ReactTextInputShadowNode.class;
+    return SecureTextInputShadowNode.class;
   }
 
   void onDetachedFromWindow(SecureEditText view) {
-    final String id = this.viewToIdMap.get(view);
-    if (id == null) {
+    if (view.getRegistrationId() == null) {
       Log.d(REACT_CLASS, "unknown SecureEditText detached");
       return;
     }
 
-    this.viewToIdMap.remove(view);
-    this.idToViewMap.remove(id);
-    this.registrationMap.remove(id);
+    unregister(view);
+  }
+
+  // Fields of the default scope are wiped with their view, named scopes keep them
+  private static void unregister(SecureEditText view) {
+    cancelBulkInsert(view);
+    view.cancelLoad();
+    unbindMatch(view, registryOf(view).getScope(view.getRegistrationScope()));
+    if (view.getStrength() != null) {
+      view.getStrength().close();
+      view.setStrength(null);
+    }
+    if (view.getAddress() != null) {
+      view.getAddress().close();
+      view.setAddress(null);
+    }
+    registryOf(view).unregister(view);
+  }
+
+  /**
+   * Compares two fields of a scope in constant time, e.g. when a password confirmation is
+   * submitted. Returns false if either field doesn't exist.
+   */
+  public static boolean verifyMatch(
+      @Nullable final String scope,
+      final String id,
+      final String otherId) {
+    final SecureRegistry registry = getCurrentRegistry();
+    if (registry == null) {
+      return false;
+    }
+    finishBulkInsert(registry.getView(scope, id));
+    finishBulkInsert(registry.getView(scope, otherId));
+    final SecureField field = registry.getField(scope, id);
+    final SecureField other = registry.getField(scope, otherId);
+    return field != null && other != null && field.getValue().constantTimeEquals(other.getValue());
+  }
+
+  // Compares the field of the view with the one named by its matchRegistrationID prop, in the same
+  // scope. The view is a matcher of that ID while it is registered, so the match is rebuilt when
+  // the other field is created or removed, as well as when the view is registered anew.
+  private static void updateMatch(final SecureEditText view, SecureField field) {
+    final String otherId = view.getMatchRegistrationId();
+    final SecureRegistry.Scope scope = registryOf(view).getScope(view.getRegistrationScope());
+    final String targetId = view.getMatchTargetId();
+    if (targetId != null && !targetId.equals(otherId)) {
+      scope.removeMatcher(targetId, view);
+    }
+    if (otherId != null) {
+      scope.addMatcher(otherId, view);
+    }
+    view.setMatchTargetId(otherId);
+
+    final SecureField other = otherId != null ? scope.getField(otherId) : null;
+    final SecureMatch match = view.getMatch();
+    if (match != null && match.getFirst() == field && match.getSecond() == other) {
+      return;
+    }
+
+    if (match != null) {
+      match.close();
+      view.setMatch(null);
+    }
+    if (other == null) {
+      return;
+    }
+
+    final SecureMatch.Listener listener = new SecureMatch.Listener() {
+      @Override
+      public void onMatchChanged(boolean matches) {
+        dispatchMatch(view, matches);
+      }
+    };
+    view.setMatch(new SecureMatch(field, other, listener));
+    dispatchMatch(view, view.getMatch().matches());
+  }
+
+  private static void unbindMatch(SecureEditText view, @Nullable SecureRegistry.Scope scope) {
+    if (view.getMatch() != null) {
+      view.getMatch().close();
+      view.setMatch(null);
+    }
+    if (scope != null && view.getMatchTargetId() != null) {
+      scope.removeMatcher(view.getMatchTargetId(), view);
+    }
+    view.setMatchTargetId(null);
+  }
+
+  private static void dispatchMatch(SecureEditText view, boolean matches) {
+    ReactContext reactContext = (ReactContext) view.getContext();
+    reactContext.getNativeModule(UIManagerModule.class).getEventDispatcher().dispatchEvent(
+        new SecureMatchEvent(view.getId(), matches));
+  }
+
+  // Scores the field of the view while it has an onStrengthChange handler. The estimator is
+  // rebuilt whenever the view is registered anew.
+  private static void updateStrength(final SecureEditText view, SecureField field) {
+    final SecureStrengthEstimator strength = view.getStrength();
+    if (strength != null && strength.getField() == field && view.isStrengthEnabled()) {
+      return;
+    }
+
+    if (strength != null) {
+      strength.close();
+      view.setStrength(null);
+    }
+    if (!view.isStrengthEnabled()) {
+      return;
+    }
+
+    view.setStrength(new SecureStrengthEstimator(
+        field,
+        view.getContext().getApplicationContext().getAssets(),
+        new SecureStrengthEstimator.Listener() {
+          @Override
+          public void onStrengthChanged(int score) {
+            ReactContext reactContext = (ReactContext) view.getContext();
+            reactContext.getNativeModule(UIManagerModule.class).getEventDispatcher()
+                .dispatchEvent(new SecureStrengthEvent(view.getId(), score));
+          }
+        }));
+  }
+
+  // Checks the field of the view as an Ethereum address while it has an onAddressChange handler.
+  // The checker is rebuilt whenever the view is registered anew.
+  private static void updateAddress(final SecureEditText view, SecureField field) {
+    final SecureAddressChecker address = view.getAddress();
+    if (address != null && address.getField() == field && view.isAddressEnabled()) {
+      return;
+    }
+
+    if (address != null) {
+      address.close();
+      view.setAddress(null);
+    }
+    if (!view.isAddressEnabled()) {
+      return;
+    }
+
+    view.setAddress(new SecureAddressChecker(field, new SecureAddressChecker.Listener() {
+      @Override
+      public void onStatusChanged(int status) {
+        ReactContext reactContext = (ReactContext) view.getContext();
+        reactContext.getNativeModule(UIManagerModule.class).getEventDispatcher()
+            .dispatchEvent(new SecureAddressEvent(view.getId(), status));
+      }
+    }));
   }
 
   class SecureReactTextInputTextWatcher implements TextWatcher {
 
     private SecureEditText mEditText;
-    private String mPreviousText;
+    private final SecureRegistry mRegistry;
+    // Range of the view's text that needs its separators put back in place after the change
+    private int mFormatFrom = -1;
+    private int mFormatEditEnd;
+    // The range the edits of an IME batch edit replaced, not applied to the registry yet: from
+    // mBatchStart to mBatchSuffix chars before the end, in a text that was mBatchLength long
+    private int mBatchStart = -1;
+    private int mBatchSuffix;
+    private int mBatchLength;
 
     public SecureReactTextInputTextWatcher(
         final SecureEditText editText) {
       mEditText = editText;
-      mPreviousText = null;
+      mRegistry = registryOf(editText);
     }
 
     @Override
     public void beforeTextChanged(CharSequence s, int start, int count, int after) {
-      // Incoming charSequence gets mutated before onTextChanged() is invoked
-      mPreviousText = s.toString();
+      // The rest of a large insert is read from the view's text, so it has to be in the registry
+      // before the text changes again
+      final BulkInsert bulkInsert = mEditText.getBulkInsert();
+      if (bulkInsert != null && !mEditText.isFormatting()) {
+        bulkInsert.finish();
+      }
     }
 
     @Override
@@ -168,22 +884,281 @@ public class SecureTextInputManager extends BaseViewManager<SecureEditText, Layo
       if (count == 0 && before == 0) {
         return;
       }
+      // Separators inserted or removed by the formatter are not part of the value
+      if (mEditText.isFormatting()) {
+        return;
+      }
+      // A programmatic load sets the registry value itself
+      if (mEditText.isLoading()) {
+        return;
+      }
+      // Already being copied into the registry
+      if (mEditText.getBulkInsert() != null) {
+        return;
+      }
 
-      Assertions.assertNotNull(mPreviousText);
-      String newText = s.toString().substring(start, start + count);
-      String oldText = mPreviousText.substring(start, start + before);
-      // Don't send same text changes
-      if (count == before && newText.equals(oldText)) {
+      final SecureFormatter formatter = mEditText.getFormatter();
+      // The formatter maps positions in the text as of the previous edit, so formatted views
+      // apply the edits of a batch one by one
+      if (mEditText.isInBatchEdit() && formatter == null) {
+        addToBatchEdit(s.length(), start, before, count);
+        return;
+      }
+
+      final SecureField field = mRegistry.getField(mEditText);
+      if (field == null) {
         return;
       }
 
-      newText = s.toString();
-      //Log.d(REACT_CLASS, "newText: " + newText);
-      registrationMap.put(viewToIdMap.get(mEditText), newText);
+      if (count > BULK_INSERT_THRESHOLD
+          && startBulkInsert(field, formatter, s, start, before, count)) {
+        return;
+      }
+      if (formatter == null) {
+        applyEdit(field, start, before, s, start, count, s);
+        return;
+      }
+
+      // The view's text was formatted before this change, so the raw range follows from the
+      // display positions
+      int rawStart = formatter.toRaw(start);
+      int rawBefore = formatter.toRaw(start + before) - rawStart;
+      if (rawBefore == 0 && before > 0 && count == 0 && rawStart > 0) {
+        // Deleting a separator deletes the char before it, as it would otherwise be put back
+        rawStart--;
+        rawBefore = 1;
+        mFormatFrom = start - 1;
+        mFormatEditEnd = -1;
+      } else {
+        mFormatFrom = start;
+        mFormatEditEnd = start + count;
+      }
+      final CharSequence raw = formatter.rawChars(s, start, count);
+      applyEdit(field, rawStart, rawBefore, raw, 0, raw.length(), null);
+      formatter.wipeRawChars();
     }
 
     @Override
     public void afterTextChanged(Editable s) {
+      final SecureFormatter formatter = mEditText.getFormatter();
+      if (mFormatFrom < 0 || formatter == null || mEditText.isFormatting()) {
+        return;
+      }
+
+      final int from = mFormatFrom;
+      int editEnd = mFormatEditEnd;
+      mFormatFrom = -1;
+      mEditText.setFormatting(true);
+      try {
+        if (editEnd < 0) {
+          s.delete(from, from + 1);
+          editEnd = from;
+        }
+        formatter.format(s, from, editEnd);
+      } finally {
+        mEditText.setFormatting(false);
+      }
+    }
+
+    private void addToBatchEdit(int length, int start, int before, int count) {
+      if (mBatchStart < 0) {
+        mBatchStart = start;
+        mBatchSuffix = length - start - count;
+        mBatchLength = length - count + before;
+      } else {
+        mBatchStart = Math.min(mBatchStart, start);
+        mBatchSuffix = Math.min(mBatchSuffix, length - start - count);
+      }
+    }
+
+    /**
+     * Applies the edits of the IME batch edit so far to the registry, as a single edit, so the
+     * listeners of the field and the validators run once for all of them.
+     */
+    void applyBatchEdit() {
+      if (mBatchStart < 0) {
+        return;
+      }
+      final Editable s = mEditText.getText();
+      final int start = mBatchStart;
+      final int before = mBatchLength - mBatchSuffix - start;
+      final int count = s.length() - mBatchSuffix - start;
+      mBatchStart = -1;
+
+      final SecureField field = mRegistry.getField(mEditText);
+      if (field == null || (before == 0 && count == 0)) {
+        return;
+      }
+      if (count > BULK_INSERT_THRESHOLD
+          && startBulkInsert(field, null, s, start, before, count)) {
+        return;
+      }
+      applyEdit(field, start, before, s, start, count, s);
+    }
+
+    private boolean startBulkInsert(
+        SecureField field,
+        @Nullable SecureFormatter formatter,
+        CharSequence s,
+        int start,
+        int before,
+        int count) {
+      int rawStart = start;
+      int rawBefore = before;
+      int rawCount = count;
+      if (formatter != null) {
+        rawStart = formatter.toRaw(start);
+        rawBefore = formatter.toRaw(start + before) - rawStart;
+        for (int i = start; i < start + count; i++) {
+          if (formatter.isSeparator(s.charAt(i))) {
+            rawCount--;
+          }
+        }
+      }
+      if (rawStart + rawBefore > field.getValue().length()) {
+        // Out of sync with the view, applyEdit starts over from its whole content
+        return false;
+      }
+      if (formatter != null) {
+        mFormatFrom = start;
+        mFormatEditEnd = start + count;
+      }
+
+      field.replace(rawStart, rawBefore, s, start, 0);
+      final BulkInsert bulkInsert = new BulkInsert(mEditText, field, rawStart, rawCount);
+      mEditText.setBulkInsert(bulkInsert);
+      mEditText.postOnAnimation(bulkInsert);
+      return true;
+    }
+
+    // Applies an edit to the registry, given as a raw range and the chars replacing it
+    private void applyEdit(
+        SecureField field,
+        int start,
+        int before,
+        CharSequence source,
+        int sourceStart,
+        int count,
+        @Nullable CharSequence wholeText) {
+      // The registry still holds the previous text, so only the changed range is compared and
+      // copied instead of the whole value
+      final SecureBuffer value = field.getValue();
+      // Don't send same text changes
+      if (count == before && value.regionMatches(start, source, sourceStart, count)) {
+        return;
+      }
+
+      if (start + before > value.length()
+          || (wholeText != null && value.length() - before + count != wholeText.length())) {
+        // Out of sync with the view, start over from its whole content
+        final CharSequence text = mEditText.getText();
+        final SecureFormatter formatter = mEditText.getFormatter();
+        final CharSequence raw =
+            formatter != null ? formatter.rawChars(text, 0, text.length()) : text;
+        // It may only have looked out of sync, e.g. when the whole text was set again. Replacing
+        // the value with itself would record it in the edit history.
+        if (raw.length() == value.length() && value.regionMatches(0, raw, 0, raw.length())) {
+          return;
+        }
+        field.replace(0, value.length(), raw, 0, raw.length());
+      } else {
+        field.replace(start, before, source, sourceStart, count);
+      }
+      if (field.updateVerdict()) {
+        dispatchValidation(mEditText, field);
+      }
+    }
+  }
+
+  /**
+   * Copies a large insert (e.g. a pasted keystore) from the view's text into the registry a chunk
+   * per frame, so the validators and the edit history don't stall the frame of the paste. The view
+   * holds the text until then, and finishes the copy before any other change to it or any read of
+   * the registry entry. The history is cleared, as such an insert couldn't be undone anyway.
+   */
+  static class BulkInsert implements Runnable {
+    private final SecureEditText mEditText;
+    private final SecureField mField;
+    // Raw position of the next char to copy
+    private int mPosition;
+    private int mRemaining;
+
+    BulkInsert(SecureEditText editText, SecureField field, int position, int count) {
+      mEditText = editText;
+      mField = field;
+      mPosition = position;
+      mRemaining = count;
+    }
+
+    @Override
+    public void run() {
+      if (mEditText.getBulkInsert() != this) {
+        return;
+      }
+
+      copy(BULK_INSERT_CHUNK);
+      if (mRemaining > 0) {
+        mEditText.postOnAnimation(this);
+      } else {
+        finish();
+      }
+    }
+
+    void finish() {
+      copy(mRemaining);
+      mField.getHistory().clear();
+      mEditText.setBulkInsert(null);
+      mEditText.removeCallbacks(this);
+      if (mField.updateVerdict()) {
+        dispatchValidation(mEditText, mField);
+      }
+    }
+
+    void cancel() {
+      mEditText.setBulkInsert(null);
+      mEditText.removeCallbacks(this);
+    }
+
+    private void copy(int max) {
+      final int count = Math.min(max, mRemaining);
+      if (count == 0) {
+        return;
+      }
+
+      final Editable text = mEditText.getText();
+      final SecureFormatter formatter = mEditText.getFormatter();
+      if (formatter == null) {
+        mField.replace(mPosition, 0, text, mPosition, count);
+      } else {
+        final int from = formatter.toDisplayStart(mPosition);
+        final int to = formatter.toDisplayEnd(mPosition + count);
+        final CharSequence raw = formatter.rawChars(text, from, to - from);
+        mField.replace(mPosition, 0, raw, 0, raw.length());
+        formatter.wipeRawChars();
+      }
+      mPosition += count;
+      mRemaining -= count;
+    }
+  }
+
+  // Brings the registry entry of the view up to date: applies the IME batch edit in progress, and
+  // finishes copying a large insert
+  private static void finishBulkInsert(@Nullable EditText view) {
+    final SecureReactTextInputTextWatcher watcher =
+        view != null ? ((SecureEditText) view).getTextWatcher() : null;
+    if (watcher != null) {
+      watcher.applyBatchEdit();
+    }
+    final BulkInsert bulkInsert = view != null ? ((SecureEditText) view).getBulkInsert() : null;
+    if (bulkInsert != null) {
+      bulkInsert.finish();
+    }
+  }
+
+  private static void cancelBulkInsert(@Nullable EditText view) {
+    final BulkInsert bulkInsert = view != null ? ((SecureEditText) view).getBulkInsert() : null;
+    if (bulkInsert != null) {
+      bulkInsert.cancel();
     }
   }
 
@@ -225,9 +1200,34 @@ public class SecureTextInputManager extends BaseViewManager<SecureEditText, Layo
     }
   }
 
+  private static void dispatchValidation(SecureEditText view, SecureField field) {
+    ReactContext reactContext = (ReactContext) view.getContext();
+    reactContext.getNativeModule(UIManagerModule.class).getEventDispatcher().dispatchEvent(
+        new SecureValidationEvent(view.getId(), field.isValid(), field.getFailedValidators()));
+  }
+
+  @Override
+  public @Nullable Map<String, Object> getExportedCustomDirectEventTypeConstants() {
+    return MapBuilder.<String, Object>of(
+        SecureValidationEvent.EVENT_NAME,
+        MapBuilder.of("registrationName", "onValidationChange"),
+        SecureGroupChangeEvent.EVENT_NAME,
+        MapBuilder.of("registrationName", "onGroupChange"),
+        SecureMatchEvent.EVENT_NAME,
+        MapBuilder.of("registrationName", "onMatchChange"),
+        SecureStrengthEvent.EVENT_NAME,
+        MapBuilder.of("registrationName", "onStrengthChange"),
+        SecureAddressEvent.EVENT_NAME,
+        MapBuilder.of("registrationName", "onAddressChange"));
+  }
+
   @Override
   public @Nullable Map<String, Integer> getCommandsMap() {
-    return MapBuilder.of("focusTextInput", FOCUS_TEXT_INPUT, "blurTextInput", BLUR_TEXT_INPUT);
+    return MapBuilder.of(
+        "focusTextInput", FOCUS_TEXT_INPUT,
+        "blurTextInput", BLUR_TEXT_INPUT,
+        "undo", UNDO,
+        "redo", REDO);
   }
 
   @Override
@@ -242,6 +1242,12 @@ public class SecureTextInputManager extends BaseViewManager<SecureEditText, Layo
       case BLUR_TEXT_INPUT:
         reactEditText.clearFocusFromJS();
         break;
+      case UNDO:
+        undo(reactEditText.getRegistrationScope(), reactEditText.getRegistrationId());
+        break;
+      case REDO:
+        redo(reactEditText.getRegistrationScope(), reactEditText.getRegistrationId());
+        break;
     }
   }
 
@@ -256,14 +1262,86 @@ public class SecureTextInputManager extends BaseViewManager<SecureEditText, Layo
           (int) update.getPaddingRight(),
           (int) update.getPaddingBottom());
 
-      final String id = viewToIdMap.get(view);
-      final String text = getText(id);
-      view.setText(text);
-      Log.d(REACT_CLASS, "called setText on EditText from updateExtraData with " + text);
-      registrationMap.put(id, text);
+      finishBulkInsert(view);
+      final SecureField field = registryOf(view).getField(view);
+      final SecureBuffer value = field != null ? field.getValue() : null;
+      if (value != null
+          && (value.length() != view.getText().length()
+              || !value.regionMatches(0, view.getText(), 0, value.length()))) {
+        // An unchanged value is not set again, that would only measure it again
+        view.loadText(value);
+      }
     }
   }
 
+  @ReactProp(name = "validators")
+  public void setValidators(SecureEditText view, @Nullable ReadableArray validators) {
+    final ArrayList<SecureValidator> parsed = new ArrayList<SecureValidator>();
+    if (validators != null) {
+      for (int i = 0; i < validators.size(); i++) {
+        parsed.add(SecureValidator.parse(validators.getString(i)));
+      }
+    }
+    // Attached in onAfterUpdateTransaction, once the registration ID is known
+    view.setPendingValidators(parsed);
+  }
+
+  @ReactProp(name = "format")
+  public void setFormat(SecureEditText view, @Nullable String format) {
+    finishBulkInsert(view);
+    final SecureField field = registryOf(view).getField(view);
+    view.setFormatter(SecureFormatter.parse(format), field != null ? field.getValue() : null);
+  }
+
+  @ReactProp(name = "groupID")
+  public void setGroupId(SecureEditText view, @Nullable String groupId) {
+    view.setGroup(groupId);
+  }
+
+  @ReactProp(name = "groupIndex", defaultInt = 0)
+  public void setGroupIndex(SecureEditText view, int groupIndex) {
+    view.setGroupIndex(groupIndex);
+  }
+
+  @ReactProp(name = "matchRegistrationID")
+  public void setMatchRegistrationId(SecureEditText view, @Nullable String id) {
+    view.setMatchRegistrationId(id);
+  }
+
+  /**
+   * Wipes the value once it has not changed for this many milliseconds. 0 keeps it.
+   */
+  @ReactProp(name = "retentionTTL", defaultInt = 0)
+  public void setRetentionTtl(SecureEditText view, int ttlMs) {
+    view.setRetentionTtl(ttlMs);
+  }
+
+  /**
+   * Limits the bytes of secure data kept by the registry across all fields, evicting values that
+   * are no longer attached to a view, least recently changed first. 0 means no limit. The budget
+   * is shared by the views of a React instance, the last value set by any of them applies.
+   */
+  @ReactProp(name = "retentionBudget", defaultInt = 0)
+  public void setRetentionBudget(SecureEditText view, int budget) {
+    registryOf(view).getRetention().setBudget(budget);
+  }
+
+  /**
+   * Replaces the system IME with an in-app keypad. Only {@code "numeric"} is supported.
+   */
+  @ReactProp(name = "keypad")
+  public void setKeypad(SecureEditText view, @Nullable String keypad) {
+    if (keypad != null && !KEYPAD_NUMERIC.equals(keypad)) {
+      throw new IllegalArgumentException("keypad: " + keypad);
+    }
+    view.setKeypadEnabled(keypad != null);
+  }
+
+  /*package*/ static long getRetainedBytes() {
+    final SecureRegistryModule module = SecureRegistryModule.getCurrent();
+    return module != null ? module.getRegistry().getRetention().getBytes() : 0;
+  }
+
   @ReactProp(name = "blurOnSubmit")
   public void setBlurOnSubmit(SecureEditText view, @Nullable Boolean blurOnSubmit) {
     view.setBlurOnSubmit(blurOnSubmit);
@@ -278,6 +1356,25 @@ public class SecureTextInputManager extends BaseViewManager<SecureEditText, Layo
     }
   }
 
+  /**
+   * Estimates the strength of the value natively while JS listens to it. Only the score is sent.
+   */
+  @ReactProp(name = "onStrengthChange", defaultBoolean = false)
+  public void setOnStrengthChange(SecureEditText view, boolean onStrengthChange) {
+    // Started or stopped in onAfterUpdateTransaction, once the registration ID is known
+    view.setStrengthEnabled(onStrengthChange);
+  }
+
+  /**
+   * Checks the value natively as an Ethereum address, with its EIP-55 checksum, while JS listens
+   * to it. Only the status is sent.
+   */
+  @ReactProp(name = "onAddressChange", defaultBoolean = false)
+  public void setOnAddressChange(SecureEditText view, boolean onAddressChange) {
+    // Started or stopped in onAfterUpdateTransaction, once the registration ID is known
+    view.setAddressEnabled(onAddressChange);
+  }
+
   @ReactProp(name = "editable", defaultBoolean = true)
   public void setEditable(SecureEditText view, boolean editable) {
     view.setEnabled(editable);
@@ -394,6 +1491,28 @@ public class SecureTextInputManager extends BaseViewManager<SecureEditText, Layo
   protected void onAfterUpdateTransaction(SecureEditText view) {
     super.onAfterUpdateTransaction(view);
     view.commitStagedInputType();
+
+    commitStagedRegistration(view);
+    finishBulkInsert(view);
+    final SecureRegistry registry = registryOf(view);
+    final SecureField field = registry.getField(view);
+    if (field != null) {
+      if (view.takeGroupChanged()) {
+        joinGroup(view, field);
+      }
+      updateMatch(view, field);
+      updateStrength(view, field);
+      updateAddress(view, field);
+      if (view.takeRetentionTtlChanged()) {
+        registry.getRetention().setTtl(field, view.getRetentionTtl());
+      }
+      final List<SecureValidator> validators = view.takePendingValidators();
+      if (validators != null) {
+        field.setValidators(validators);
+        field.updateVerdict();
+        dispatchValidation(view, field);
+      }
+    }
   }
 
   // Sets the correct password type, since numeric and text passwords have different types
@@ -0,0 +1,226 @@
+package com.statuspoc;
+
+import android.graphics.Typeface;
+import android.os.Build;
+import android.text.method.PasswordTransformationMethod;
+import android.util.LruCache;
+import android.util.TypedValue;
+import android.view.ViewGroup;
+import android.widget.EditText;
+import com.facebook.react.uimanager.ThemedReactContext;
+import com.facebook.react.views.textinput.ReactTextInputShadowNode;
+import com.facebook.react.views.view.MeasureUtil;
+import com.facebook.yoga.YogaMeasureMode;
+import com.facebook.yoga.YogaMeasureOutput;
+import com.facebook.yoga.YogaNode;
+import java.util.Arrays;
+
+import javax.annotation.Nullable;
+
+/**
+ * Shadow node of SecureTextInput2.
+ *
+ * A masked field renders as one bullet per char, so its size only depends on the number of chars
+ * and on how they are drawn. Such fields send a {@link MaskedLocalData} instead of their text, and
+ * their measurements are cached by those parameters: while typing, measuring is a lookup instead
+ * of a layout. As a side effect their value is not copied to the layout thread anymore.
+ */
+public class SecureTextInputShadowNode extends ReactTextInputShadowNode {
+
+  private static final int CACHE_SIZE = 64;
+  private static final char BULLET = '\u2022';
+
+  // Shared by all masked fields, measuring happens on the layout thread only
+  private static final LruCache<MeasureKey, Long> measureCache =
+      new LruCache<MeasureKey, Long>(CACHE_SIZE);
+
+  /**
+   * Empties the measurement cache. Returns the number of entries dropped.
+   */
+  /*package*/ static int trimMeasureCache() {
+    final int size = measureCache.size();
+    measureCache.evictAll();
+    return size;
+  }
+
+  /**
+   * What a masked field looks like, without its content.
+   */
+  /*package*/ static final class MaskedLocalData {
+    private final int mLength;
+    private final @Nullable Typeface mTypeface;
+    private final float mTextSize;
+    private final float mLetterSpacing;
+    private final int mInputType;
+    private final int mMinLines;
+    private final int mMaxLines;
+
+    /*package*/ MaskedLocalData(EditText editText) {
+      mLength = editText.getText().length();
+      mTypeface = editText.getTypeface();
+      mTextSize = editText.getTextSize();
+      mLetterSpacing =
+          Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP ? editText.getLetterSpacing() : 0;
+      mInputType = editText.getInputType();
+      mMinLines = editText.getMinLines();
+      mMaxLines = editText.getMaxLines();
+    }
+
+    /**
+     * Returns whether {@code editText} can be measured from its MaskedLocalData. An empty field
+     * shows its placeholder instead of bullets.
+     */
+    /*package*/ static boolean canDescribe(EditText editText) {
+      return editText.getTransformationMethod() instanceof PasswordTransformationMethod
+          && editText.getText().length() > 0;
+    }
+
+    /**
+     * Returns whether this is what {@code editText} looks like, without allocating.
+     */
+    /*package*/ boolean describes(EditText editText) {
+      final Typeface typeface = editText.getTypeface();
+      return mLength == editText.getText().length()
+          && (mTypeface == null ? typeface == null : mTypeface.equals(typeface))
+          && mTextSize == editText.getTextSize()
+          && (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP
+              || mLetterSpacing == editText.getLetterSpacing())
+          && mInputType == editText.getInputType()
+          && mMinLines == editText.getMinLines()
+          && mMaxLines == editText.getMaxLines();
+    }
+
+    private void apply(EditText editText) {
+      final char[] bullets = new char[mLength];
+      Arrays.fill(bullets, BULLET);
+      editText.setTextSize(TypedValue.COMPLEX_UNIT_PX, mTextSize);
+      editText.setTypeface(mTypeface);
+      if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+        editText.setLetterSpacing(mLetterSpacing);
+      }
+      editText.setInputType(mInputType);
+      editText.setMinLines(mMinLines);
+      editText.setMaxLines(mMaxLines);
+      editText.setText(new String(bullets));
+    }
+  }
+
+  private static final class MeasureKey {
+    private @Nullable MaskedLocalData mData;
+    private float mWidth;
+    private YogaMeasureMode mWidthMode;
+    private float mHeight;
+    private YogaMeasureMode mHeightMode;
+
+    private MeasureKey set(
+        MaskedLocalData data,
+        float width,
+        YogaMeasureMode widthMode,
+        float height,
+        YogaMeasureMode heightMode) {
+      mData = data;
+      mWidth = width;
+      mWidthMode = widthMode;
+      mHeight = height;
+      mHeightMode = heightMode;
+      return this;
+    }
+
+    private MeasureKey copy() {
+      return new MeasureKey().set(mData, mWidth, mWidthMode, mHeight, mHeightMode);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof MeasureKey)) {
+        return false;
+      }
+      final MeasureKey other = (MeasureKey) o;
+      final MaskedLocalData a = mData;
+      final MaskedLocalData b = other.mData;
+      return a.mLength == b.mLength
+          && (a.mTypeface == null ? b.mTypeface == null : a.mTypeface.equals(b.mTypeface))
+          && a.mTextSize == b.mTextSize
+          && a.mLetterSpacing == b.mLetterSpacing
+          && a.mInputType == b.mInputType
+          && a.mMinLines == b.mMinLines
+          && a.mMaxLines == b.mMaxLines
+          && Float.compare(mWidth, other.mWidth) == 0
+          && mWidthMode == other.mWidthMode
+          && Float.compare(mHeight, other.mHeight) == 0
+          && mHeightMode == other.mHeightMode;
+    }
+
+    @Override
+    public int hashCode() {
+      int hash = mData.mLength;
+      hash = 31 * hash + (mData.mTypeface != null ? mData.mTypeface.hashCode() : 0);
+      hash = 31 * hash + Float.floatToIntBits(mData.mTextSize);
+      hash = 31 * hash + Float.floatToIntBits(mData.mLetterSpacing);
+      hash = 31 * hash + mData.mInputType;
+      hash = 31 * hash + mData.mMinLines;
+      hash = 31 * hash + mData.mMaxLines;
+      hash = 31 * hash + Float.floatToIntBits(mWidth);
+      hash = 31 * hash + mWidthMode.ordinal();
+      hash = 31 * hash + Float.floatToIntBits(mHeight);
+      hash = 31 * hash + mHeightMode.ordinal();
+      return hash;
+    }
+  }
+
+  private @Nullable EditText mMaskedEditText;
+  private @Nullable MaskedLocalData mMaskedData;
+  private final MeasureKey mLookupKey = new MeasureKey();
+
+  @Override
+  public void setThemedContext(ThemedReactContext themedContext) {
+    super.setThemedContext(themedContext);
+
+    // Set up like the one of the superclass: padding is applied by the node, not the view
+    mMaskedEditText = new EditText(themedContext);
+    mMaskedEditText.setPadding(0, 0, 0, 0);
+    mMaskedEditText.setLayoutParams(new ViewGroup.LayoutParams(
+        ViewGroup.LayoutParams.WRAP_CONTENT,
+        ViewGroup.LayoutParams.WRAP_CONTENT));
+  }
+
+  @Override
+  public long measure(
+      YogaNode node,
+      float width,
+      YogaMeasureMode widthMode,
+      float height,
+      YogaMeasureMode heightMode) {
+    final MaskedLocalData data = mMaskedData;
+    if (data == null || mMaskedEditText == null) {
+      return super.measure(node, width, widthMode, height, heightMode);
+    }
+
+    mLookupKey.set(data, width, widthMode, height, heightMode);
+    final Long cached = measureCache.get(mLookupKey);
+    if (cached != null) {
+      return cached;
+    }
+
+    data.apply(mMaskedEditText);
+    mMaskedEditText.measure(
+        MeasureUtil.getMeasureSpec(width, widthMode),
+        MeasureUtil.getMeasureSpec(height, heightMode));
+    final long size = YogaMeasureOutput.make(
+        mMaskedEditText.getMeasuredWidth(),
+        mMaskedEditText.getMeasuredHeight());
+    measureCache.put(mLookupKey.copy(), size);
+    return size;
+  }
+
+  @Override
+  public void setLocalData(Object data) {
+    if (data instanceof MaskedLocalData) {
+      mMaskedData = (MaskedLocalData) data;
+      dirty();
+    } else {
+      mMaskedData = null;
+      super.setLocalData(data);
+    }
+  }
+}
@@ -0,0 +1,46 @@
+package com.statuspoc;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.uimanager.events.Event;
+import com.facebook.react.uimanager.events.RCTEventEmitter;
+
+/**
+ * Event emitted when the validation verdict of a secure field changes. It only carries the specs
+ * of the failing validators, never any part of the value.
+ */
+public class SecureValidationEvent extends Event<SecureValidationEvent> {
+
+  public static final String EVENT_NAME = "topValidationChange";
+
+  private final boolean mValid;
+  private final String[] mFailed;
+
+  public SecureValidationEvent(int viewId, boolean valid, String[] failed) {
+    super(viewId);
+    mValid = valid;
+    mFailed = failed;
+  }
+
+  @Override
+  public String getEventName() {
+    return EVENT_NAME;
+  }
+
+  @Override
+  public void dispatch(RCTEventEmitter rctEventEmitter) {
+    rctEventEmitter.receiveEvent(getViewTag(), getEventName(), serializeEventData());
+  }
+
+  private WritableMap serializeEventData() {
+    WritableMap eventData = Arguments.createMap();
+    eventData.putBoolean("valid", mValid);
+    WritableArray failed = Arguments.createArray();
+    for (String spec : mFailed) {
+      failed.pushString(spec);
+    }
+    eventData.putArray("failed", failed);
+    return eventData;
+  }
+}
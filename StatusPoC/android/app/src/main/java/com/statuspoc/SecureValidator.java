@@ -0,0 +1,281 @@
+package com.statuspoc;
+
+import java.util.Arrays;
+
+/**
+ * A validation rule for a secure field, declared from JS as a spec such as {@code "minLength:12"}
+ * or {@code "charset:hex"}.
+ *
+ * Validators are attached to the field as edit listeners and keep whatever state they need up to
+ * date from each delta, so checking a keystroke costs O(delta) rather than a pass over the whole
+ * value. Only the verdict ever leaves native code.
+ */
+abstract class SecureValidator implements SecureField.EditListener {
+
+  private final String mSpec;
+
+  SecureValidator(String spec) {
+    mSpec = spec;
+  }
+
+  /**
+   * Returns the spec this validator was created from. It never contains any part of the value.
+   */
+  String getSpec() {
+    return mSpec;
+  }
+
+  abstract boolean isValid();
+
+  /**
+   * Drops any state derived from the value.
+   */
+  abstract void reset();
+
+  @Override
+  public void onBeforeReplace(SecureBuffer value, int start, int before) {
+  }
+
+  /**
+   * Parses a spec of the form {@code name:argument}.
+   *
+   * Supported specs are {@code minLength:N}, {@code maxLength:N}, {@code length:N},
+   * {@code charset:hex|digits|alpha|alnum|base58|ascii},
+   * {@code requires:upper|lower|digit|symbol} and {@code pattern:<regex>}.
+   */
+  static SecureValidator parse(String spec) throws IllegalArgumentException {
+    final int colon = spec.indexOf(':');
+    if (colon < 0) {
+      throw new IllegalArgumentException("validator: " + spec);
+    }
+
+    final String name = spec.substring(0, colon);
+    final String argument = spec.substring(colon + 1);
+    switch (name) {
+      case "minLength":
+        return new LengthValidator(spec, parseLength(argument), Integer.MAX_VALUE);
+      case "maxLength":
+        return new LengthValidator(spec, 0, parseLength(argument));
+      case "length":
+        return new LengthValidator(spec, parseLength(argument), parseLength(argument));
+      case "charset":
+        return new CharsetValidator(spec, parseCharClass(argument), false);
+      case "requires":
+        return new CharsetValidator(spec, parseCharClass(argument), true);
+      case "pattern":
+        return new PatternValidator(spec, new SecurePatternDfa(argument));
+      default:
+        throw new IllegalArgumentException("validator: " + spec);
+    }
+  }
+
+  private static int parseLength(String argument) {
+    try {
+      return Integer.parseInt(argument);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("validator length: " + argument);
+    }
+  }
+
+  static final int CLASS_HEX = 0;
+  static final int CLASS_DIGITS = 1;
+  static final int CLASS_ALPHA = 2;
+  static final int CLASS_ALNUM = 3;
+  static final int CLASS_BASE58 = 4;
+  static final int CLASS_ASCII = 5;
+  static final int CLASS_UPPER = 6;
+  static final int CLASS_LOWER = 7;
+  static final int CLASS_SYMBOL = 8;
+
+  private static int parseCharClass(String argument) {
+    switch (argument) {
+      case "hex":
+        return CLASS_HEX;
+      case "digits":
+      case "digit":
+        return CLASS_DIGITS;
+      case "alpha":
+        return CLASS_ALPHA;
+      case "alnum":
+        return CLASS_ALNUM;
+      case "base58":
+        return CLASS_BASE58;
+      case "ascii":
+        return CLASS_ASCII;
+      case "upper":
+        return CLASS_UPPER;
+      case "lower":
+        return CLASS_LOWER;
+      case "symbol":
+        return CLASS_SYMBOL;
+      default:
+        throw new IllegalArgumentException("validator char class: " + argument);
+    }
+  }
+
+  static boolean isInClass(int charClass, char c) {
+    switch (charClass) {
+      case CLASS_HEX:
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+      case CLASS_DIGITS:
+        return c >= '0' && c <= '9';
+      case CLASS_ALPHA:
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+      case CLASS_ALNUM:
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+      case CLASS_BASE58:
+        return ((c >= '1' && c <= '9') || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z'))
+            && c != 'l' && c != 'I' && c != 'O';
+      case CLASS_ASCII:
+        return c >= 0x20 && c < 0x7f;
+      case CLASS_UPPER:
+        return Character.isUpperCase(c);
+      case CLASS_LOWER:
+        return Character.isLowerCase(c);
+      case CLASS_SYMBOL:
+        return !Character.isLetterOrDigit(c) && !Character.isWhitespace(c);
+      default:
+        return false;
+    }
+  }
+
+  private static class LengthValidator extends SecureValidator {
+    private final int mMin;
+    private final int mMax;
+    private int mLength;
+
+    LengthValidator(String spec, int min, int max) {
+      super(spec);
+      mMin = min;
+      mMax = max;
+    }
+
+    @Override
+    boolean isValid() {
+      return mLength >= mMin && mLength <= mMax;
+    }
+
+    @Override
+    void reset() {
+      mLength = 0;
+    }
+
+    @Override
+    public void onAfterReplace(SecureBuffer value, int start, int count) {
+      mLength = value.length();
+    }
+  }
+
+  /**
+   * Counts the chars of the value that are in a char class. With {@code requires} the value needs
+   * at least one of them, otherwise it must not contain any char outside of the class.
+   */
+  private static class CharsetValidator extends SecureValidator {
+    private final int mCharClass;
+    private final boolean mRequires;
+    private int mInClass;
+    private int mOutOfClass;
+
+    CharsetValidator(String spec, int charClass, boolean requires) {
+      super(spec);
+      mCharClass = charClass;
+      mRequires = requires;
+    }
+
+    @Override
+    boolean isValid() {
+      return mRequires ? mInClass > 0 : mOutOfClass == 0;
+    }
+
+    @Override
+    void reset() {
+      mInClass = 0;
+      mOutOfClass = 0;
+    }
+
+    @Override
+    public void onBeforeReplace(SecureBuffer value, int start, int before) {
+      for (int i = start; i < start + before; i++) {
+        if (isInClass(mCharClass, value.charAt(i))) {
+          mInClass--;
+        } else {
+          mOutOfClass--;
+        }
+      }
+    }
+
+    @Override
+    public void onAfterReplace(SecureBuffer value, int start, int count) {
+      for (int i = start; i < start + count; i++) {
+        if (isInClass(mCharClass, value.charAt(i))) {
+          mInClass++;
+        } else {
+          mOutOfClass++;
+        }
+      }
+    }
+  }
+
+  /**
+   * Keeps the DFA state after every position of the value, so an edit only re-runs the DFA from
+   * the edited position onwards. Typing at the end of the value is O(delta).
+   */
+  private static class PatternValidator extends SecureValidator {
+    private final SecurePatternDfa mDfa;
+    // mStates[i] is the state after the first i chars
+    private int[] mStates = new int[16];
+    private int mLength;
+    private int mBefore;
+
+    PatternValidator(String spec, SecurePatternDfa dfa) {
+      super(spec);
+      mDfa = dfa;
+      mStates[0] = dfa.getInitialState();
+    }
+
+    @Override
+    boolean isValid() {
+      return mDfa.isAccepting(mStates[mLength]);
+    }
+
+    @Override
+    void reset() {
+      Arrays.fill(mStates, 0);
+      mStates[0] = mDfa.getInitialState();
+      mLength = 0;
+    }
+
+    @Override
+    public void onBeforeReplace(SecureBuffer value, int start, int before) {
+      mBefore = before;
+    }
+
+    @Override
+    public void onAfterReplace(SecureBuffer value, int start, int count) {
+      final int length = value.length();
+      if (length + 1 > mStates.length) {
+        final int[] states = Arrays.copyOf(mStates, Math.max(length + 1, mStates.length * 2));
+        Arrays.fill(mStates, 0);
+        mStates = states;
+      }
+
+      int state = mStates[start];
+      for (int i = start; i < length; i++) {
+        if (state == SecurePatternDfa.DEAD) {
+          Arrays.fill(mStates, i + 1, length + 1, SecurePatternDfa.DEAD);
+          break;
+        }
+        state = mDfa.next(state, value.charAt(i));
+        if (count == mBefore && i + 1 >= start + count && mStates[i + 1] == state) {
+          // Same length and back in the state the old value had here, so the rest is unchanged
+          break;
+        }
+        mStates[i + 1] = state;
+      }
+      if (length < mLength) {
+        Arrays.fill(mStates, length + 1, mLength + 1, 0);
+      }
+      mLength = length;
+    }
+  }
+}
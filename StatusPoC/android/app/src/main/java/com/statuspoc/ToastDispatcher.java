@@ -0,0 +1,116 @@
+// ToastDispatcher.java
+
+package com.statuspoc;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.widget.Toast;
+
+import java.util.ArrayDeque;
+
+import javax.annotation.Nullable;
+
+/**
+ * Shows the toasts of ToastModule one at a time.
+ *
+ * The system queues every toast it is given, so a burst of them, e.g. from a loop, keeps the
+ * screen busy long after it is over. Here, a toast is only handed to the system once the previous
+ * one is gone. A message that is already waiting is not queued again, and past
+ * {@link #MAX_PENDING} messages the oldest are dropped. One Toast is kept per duration and
+ * shown again with the next message.
+ *
+ * Only used on the UI thread.
+ */
+final class ToastDispatcher {
+
+  private static final int MAX_PENDING = 8;
+  // How long the system shows each duration, plus the time its animation takes
+  private static final long SHORT_DURATION_MS = 2000 + 500;
+  private static final long LONG_DURATION_MS = 3500 + 500;
+
+  private final Context mContext;
+  private final Handler mHandler = new Handler(Looper.getMainLooper());
+  private final ArrayDeque<Pending> mPending = new ArrayDeque<>();
+  private @Nullable Toast mShortToast;
+  private @Nullable Toast mLongToast;
+  // When the toast shown last is gone
+  private long mBusyUntil;
+
+  private final Runnable mShowNext = new Runnable() {
+    @Override
+    public void run() {
+      showNext();
+    }
+  };
+
+  ToastDispatcher(Context context) {
+    mContext = context;
+  }
+
+  void enqueue(String message, int duration) {
+    for (Pending pending : mPending) {
+      if (pending.mDuration == duration && pending.mMessage.equals(message)) {
+        return;
+      }
+    }
+    if (mPending.size() == MAX_PENDING) {
+      mPending.removeFirst();
+    }
+    mPending.addLast(new Pending(message, duration));
+    if (mPending.size() == 1) {
+      showNext();
+    }
+  }
+
+  /**
+   * Drops the messages not shown yet.
+   */
+  void clear() {
+    mPending.clear();
+    mHandler.removeCallbacks(mShowNext);
+  }
+
+  private void showNext() {
+    final long now = SystemClock.uptimeMillis();
+    if (now < mBusyUntil) {
+      mHandler.removeCallbacks(mShowNext);
+      mHandler.postAtTime(mShowNext, mBusyUntil);
+      return;
+    }
+
+    final Pending pending = mPending.pollFirst();
+    if (pending == null) {
+      return;
+    }
+    final boolean isLong = pending.mDuration == Toast.LENGTH_LONG;
+    Toast toast = isLong ? mLongToast : mShortToast;
+    if (toast == null) {
+      toast = Toast.makeText(mContext, pending.mMessage, pending.mDuration);
+      if (isLong) {
+        mLongToast = toast;
+      } else {
+        mShortToast = toast;
+      }
+    } else {
+      toast.setText(pending.mMessage);
+    }
+    toast.show();
+
+    mBusyUntil = now + (isLong ? LONG_DURATION_MS : SHORT_DURATION_MS);
+    if (!mPending.isEmpty()) {
+      mHandler.postAtTime(mShowNext, mBusyUntil);
+    }
+  }
+
+  private static final class Pending {
+    final String mMessage;
+    final int mDuration;
+
+    Pending(String message, int duration) {
+      mMessage = message;
+      mDuration = duration;
+    }
+  }
+}
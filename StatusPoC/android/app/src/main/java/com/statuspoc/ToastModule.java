@@ -7,7 +7,10 @@ import android.widget.Toast;
 import com.facebook.react.bridge.ReactApplicationContext;
 import com.facebook.react.bridge.ReactContextBaseJavaModule;
 import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.UiThreadUtil;
 
+import java.util.Collections;
 import java.util.Map;
 import java.util.HashMap;
 
@@ -16,8 +19,19 @@ public class ToastModule extends ReactContextBaseJavaModule {
   private static final String DURATION_SHORT_KEY = "SHORT";
   private static final String DURATION_LONG_KEY = "LONG";
 
+  private static final Map<String, Object> CONSTANTS;
+  static {
+    final Map<String, Object> constants = new HashMap<>();
+    constants.put(DURATION_SHORT_KEY, Toast.LENGTH_SHORT);
+    constants.put(DURATION_LONG_KEY, Toast.LENGTH_LONG);
+    CONSTANTS = Collections.unmodifiableMap(constants);
+  }
+
+  private final ToastDispatcher mDispatcher;
+
   public ToastModule(ReactApplicationContext reactContext) {
     super(reactContext);
+    mDispatcher = new ToastDispatcher(reactContext);
   }
 
   @Override
@@ -27,14 +41,49 @@ public class ToastModule extends ReactContextBaseJavaModule {
 
   @Override
   public Map<String, Object> getConstants() {
-    final Map<String, Object> constants = new HashMap<>();
-    constants.put(DURATION_SHORT_KEY, Toast.LENGTH_SHORT);
-    constants.put(DURATION_LONG_KEY, Toast.LENGTH_LONG);
-    return constants;
+    return CONSTANTS;
+  }
+
+  /**
+   * Shows {@code message}, once the toasts shown before it are gone. A message already waiting
+   * to be shown is not queued again.
+   */
+  @ReactMethod
+  public void show(final String message, final int duration) {
+    UiThreadUtil.runOnUiThread(new Runnable() {
+      @Override
+      public void run() {
+        mDispatcher.enqueue(message, duration);
+      }
+    });
   }
 
+  /**
+   * Shows each of {@code messages} like {@link #show}, in one call from JS.
+   */
   @ReactMethod
-  public void show(String message, int duration) {
-    Toast.makeText(getReactApplicationContext(), message, duration).show();
+  public void showAll(ReadableArray messages, final int duration) {
+    final String[] values = new String[messages.size()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = messages.getString(i);
+    }
+    UiThreadUtil.runOnUiThread(new Runnable() {
+      @Override
+      public void run() {
+        for (String message : values) {
+          mDispatcher.enqueue(message, duration);
+        }
+      }
+    });
+  }
+
+  @Override
+  public void onCatalystInstanceDestroy() {
+    UiThreadUtil.runOnUiThread(new Runnable() {
+      @Override
+      public void run() {
+        mDispatcher.clear();
+      }
+    });
   }
 }
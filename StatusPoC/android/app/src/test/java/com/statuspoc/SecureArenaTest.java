@@ -0,0 +1,121 @@
+package com.statuspoc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Random;
+import org.junit.Test;
+
+public class SecureArenaTest {
+
+  @Test
+  public void buffersKeepTheirCharsWhileTheArenaMovesThem() {
+    final Random random = new Random(32);
+    final SecureArena arena = new SecureArena();
+    final ArrayList<SecureBuffer> buffers = new ArrayList<SecureBuffer>();
+    final ArrayList<StringBuilder> expected = new ArrayList<StringBuilder>();
+    final ArrayList<char[]> dropped = new ArrayList<char[]>();
+    char[] chars = arena.getChars();
+    for (int i = 0; i < 5000; i++) {
+      final int op = random.nextInt(10);
+      if (op == 0 || buffers.isEmpty()) {
+        buffers.add(new SecureBuffer(arena));
+        expected.add(new StringBuilder());
+      } else if (op == 1) {
+        final int index = random.nextInt(buffers.size());
+        buffers.remove(index).release();
+        expected.remove(index);
+      } else if (op == 2) {
+        buffers.get(random.nextInt(buffers.size())).trimToSize();
+      } else {
+        final int index = random.nextInt(buffers.size());
+        final StringBuilder value = expected.get(index);
+        final int start = random.nextInt(value.length() + 1);
+        final int before = random.nextInt(value.length() - start + 1) / 2;
+        final String text = randomText(random, random.nextInt(40));
+        buffers.get(index).replace(start, before, text, 0, text.length());
+        value.replace(start, start + before, text);
+      }
+      if (i % 500 == 0) {
+        arena.trimToSize();
+      }
+      if (arena.getChars() != chars) {
+        dropped.add(chars);
+        chars = arena.getChars();
+      }
+
+      for (int j = 0; j < buffers.size(); j++) {
+        assertEquals(expected.get(j).toString(), buffers.get(j).toString());
+      }
+      // Nothing is left of removed or moved chars
+      int length = 0;
+      for (int j = 0; j < expected.size(); j++) {
+        length += expected.get(j).length();
+      }
+      assertEquals(length, countNonZero(arena.getChars()));
+    }
+    for (char[] array : dropped) {
+      assertEquals(0, countNonZero(array));
+    }
+  }
+
+  @Test
+  public void releaseWipesEveryBuffer() {
+    final SecureArena arena = new SecureArena();
+    final SecureBuffer[] buffers = new SecureBuffer[20];
+    for (int i = 0; i < buffers.length; i++) {
+      buffers[i] = new SecureBuffer(arena);
+      buffers[i].replace(0, 0, "secret " + i, 0, ("secret " + i).length());
+    }
+    final char[] chars = arena.getChars();
+
+    arena.release();
+    assertEquals(0, countNonZero(chars));
+    for (SecureBuffer buffer : buffers) {
+      assertEquals(0, buffer.length());
+      assertEquals("", buffer.toString());
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void releasedBuffersCantBeWritten() {
+    final SecureArena arena = new SecureArena();
+    final SecureBuffer buffer = new SecureBuffer(arena);
+    arena.release();
+    buffer.replace(0, 0, "a", 0, 1);
+  }
+
+  @Test
+  public void releaseWipesDerivedState() {
+    final SecureArena arena = new SecureArena();
+    final SecureField field = new SecureField(arena);
+    field.setValue("hunter2");
+    final byte[] digest = new byte[SecureDigest.DIGEST_LENGTH];
+    field.getDigest(digest, 0);
+    assertTrue(field.dropDigest() > 0);
+    field.getDigest(digest, 0);
+
+    arena.release();
+    assertEquals(0, field.dropDigest());
+    assertEquals(0, field.getValue().length());
+  }
+
+  private static String randomText(Random random, int length) {
+    final char[] chars = new char[length];
+    for (int i = 0; i < length; i++) {
+      chars[i] = (char) ('a' + random.nextInt(26));
+    }
+    return new String(chars);
+  }
+
+  private static int countNonZero(char[] chars) {
+    int count = 0;
+    for (char c : chars) {
+      if (c != '\0') {
+        count++;
+      }
+    }
+    return count;
+  }
+}
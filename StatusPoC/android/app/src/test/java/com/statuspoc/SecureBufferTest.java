@@ -0,0 +1,70 @@
+package com.statuspoc;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Random;
+import org.junit.Test;
+
+public class SecureBufferTest {
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  @Test
+  public void encodesUtf8LikeTheJdk() {
+    final String[] values = {
+        "", "abc", "\u00e9t\u00e9", "\u20ac 12", "\ud83d\udd11 key", "a\ud800\udc00",
+        "\uffff\u0800\u07ff\u0080\u007f",
+    };
+    for (String value : values) {
+      checkUtf8(value);
+    }
+
+    final Random random = new Random(36);
+    final char[] chars = new char[32];
+    for (int i = 0; i < 1000; i++) {
+      final int length = random.nextInt(chars.length / 2);
+      int position = 0;
+      while (position < length) {
+        if (random.nextInt(4) == 0) {
+          final int codePoint = 0x10000 + random.nextInt(0x100000);
+          position += Character.toChars(codePoint, chars, position);
+        } else {
+          char c;
+          do {
+            c = (char) random.nextInt(random.nextBoolean() ? 0x80 : 0x10000);
+          } while (Character.isSurrogate(c));
+          chars[position++] = c;
+        }
+      }
+      checkUtf8(new String(chars, 0, position));
+    }
+  }
+
+  @Test
+  public void rejectsUnpairedSurrogates() {
+    final String[] values = {"\ud800", "a\udc00b", "\ud800\ud800\udc00", "\udc00\ud800"};
+    for (String value : values) {
+      final SecureBuffer buffer = new SecureBuffer();
+      buffer.replace(0, 0, value, 0, value.length());
+      assertEquals(value, -1, buffer.getUtf8Length());
+    }
+  }
+
+  private static void checkUtf8(String value) {
+    final SecureBuffer buffer = new SecureBuffer();
+    buffer.replace(0, 0, value, 0, value.length());
+    final byte[] expected = value.getBytes(UTF_8);
+    assertEquals(expected.length, buffer.getUtf8Length());
+
+    final ByteBuffer out = ByteBuffer.allocateDirect(expected.length);
+    buffer.encodeUtf8(out);
+    assertEquals(expected.length, out.position());
+    final byte[] actual = new byte[expected.length];
+    out.flip();
+    out.get(actual);
+    assertArrayEquals(value, expected, actual);
+  }
+}
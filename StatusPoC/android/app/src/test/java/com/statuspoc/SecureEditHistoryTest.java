@@ -0,0 +1,63 @@
+package com.statuspoc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class SecureEditHistoryTest {
+
+  @Test
+  public void typingAfterNoOpEditAtStart() {
+    final SecureField field = new SecureField();
+    field.replace(0, 0, "", 0, 0);
+    field.replace(0, 0, "x", 0, 1);
+    assertEquals("x", field.getValue().toString());
+
+    assertTrue(field.getHistory().undo(field.getEditor()));
+    assertEquals("", field.getValue().toString());
+    assertFalse(field.getHistory().canUndo());
+  }
+
+  @Test
+  public void typingAfterEmptyValue() {
+    final SecureField field = new SecureField();
+    field.setValue("");
+    field.replace(0, 0, "a", 0, 1);
+    field.replace(1, 0, "b", 0, 1);
+    assertEquals("ab", field.getValue().toString());
+
+    assertTrue(field.getHistory().undo(field.getEditor()));
+    assertEquals("", field.getValue().toString());
+    assertTrue(field.getHistory().redo(field.getEditor()));
+    assertEquals("ab", field.getValue().toString());
+  }
+
+  @Test
+  public void typingAtStartAfterDeletingEverything() {
+    final SecureField field = new SecureField();
+    field.replace(0, 0, "ab", 0, 2);
+    field.replace(0, 2, "", 0, 0);
+    field.replace(0, 0, "c", 0, 1);
+    assertEquals("c", field.getValue().toString());
+
+    assertTrue(field.getHistory().undo(field.getEditor()));
+    assertEquals("", field.getValue().toString());
+  }
+
+  @Test
+  public void wordsAreUndoneOneAtATime() {
+    final SecureField field = new SecureField();
+    final String text = "ab cd";
+    for (int i = 0; i < text.length(); i++) {
+      field.replace(i, 0, text, i, 1);
+    }
+
+    assertTrue(field.getHistory().undo(field.getEditor()));
+    assertEquals("ab ", field.getValue().toString());
+    assertTrue(field.getHistory().undo(field.getEditor()));
+    assertEquals("", field.getValue().toString());
+    assertFalse(field.getHistory().undo(field.getEditor()));
+  }
+}
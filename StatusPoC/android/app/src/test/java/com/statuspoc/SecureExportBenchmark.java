@@ -0,0 +1,145 @@
+package com.statuspoc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+/**
+ * Compares handing a secure value to native code with exportUtf8, into a direct buffer that is
+ * reused, with reading it as a String, encoding it with getBytes and copying the bytes into the
+ * same buffer. Prints the time and heap allocated per export for a few value lengths. Excluded
+ * from the unit tests, run with {@code ./gradlew testDebugUnitTest -Pbenchmarks}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SecureExportBenchmark {
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final String ID = "secret";
+  private static final int[] LENGTHS = {16, 256, 4096};
+  private static final int WARM_UP = 2000;
+  private static final int EXPORTS = 20000;
+
+  private SecureViewHarness mHarness;
+  private SecureEditText mView;
+  private ByteBuffer mBuffer;
+  private long mChecksum;
+
+  // Reads every byte, as native code would
+  private final SecureTextInputManager.Utf8Consumer mConsumer =
+      new SecureTextInputManager.Utf8Consumer() {
+        @Override
+        public void consume(ByteBuffer utf8) {
+          consumeBytes(utf8);
+        }
+      };
+
+  @Before
+  public void setUp() {
+    mHarness = new SecureViewHarness();
+    mView = mHarness.mount(null, ID);
+  }
+
+  @After
+  public void tearDown() {
+    mHarness.destroy();
+  }
+
+  @Test
+  public void exportUtf8VersusGetBytes() {
+    final com.sun.management.ThreadMXBean threads = threadMXBean();
+    assertNotNull("allocations can't be measured on this JVM", threads);
+    threads.setThreadAllocatedMemoryEnabled(true);
+    final long thread = Thread.currentThread().getId();
+
+    for (int length : LENGTHS) {
+      mView.getText().replace(0, mView.getText().length(), value(length));
+      mBuffer = ByteBuffer.allocateDirect(SecureTextInputManager.getMaxUtf8Length(null, ID));
+      final int utf8Length = SecureTextInputManager.getText(ID).getBytes(UTF_8).length;
+
+      for (int i = 0; i < WARM_UP; i++) {
+        export();
+        copy();
+      }
+
+      long allocated = threads.getThreadAllocatedBytes(thread);
+      long start = System.nanoTime();
+      for (int i = 0; i < EXPORTS; i++) {
+        export();
+      }
+      final double exportNanos = (System.nanoTime() - start) / (double) EXPORTS;
+      final double exportBytes =
+          (threads.getThreadAllocatedBytes(thread) - allocated) / (double) EXPORTS;
+
+      allocated = threads.getThreadAllocatedBytes(thread);
+      start = System.nanoTime();
+      for (int i = 0; i < EXPORTS; i++) {
+        copy();
+      }
+      final double copyNanos = (System.nanoTime() - start) / (double) EXPORTS;
+      final double copyBytes =
+          (threads.getThreadAllocatedBytes(thread) - allocated) / (double) EXPORTS;
+
+      System.out.println(String.format(
+          "%d chars, %d UTF-8 bytes: exportUtf8 %.2f us and %.0f bytes allocated, "
+              + "getBytes and copy %.2f us and %.0f bytes allocated",
+          length, utf8Length, exportNanos / 1000, exportBytes, copyNanos / 1000, copyBytes));
+      // The copy holds the value twice on the heap, the export never does
+      assertTrue(exportBytes + " bytes allocated per export", exportBytes < utf8Length);
+    }
+  }
+
+  private void export() {
+    assertTrue(SecureTextInputManager.exportUtf8(null, ID, mBuffer, mConsumer));
+  }
+
+  // What a caller without exportUtf8 would do. The copy is zeroed afterwards as well, the String
+  // and the byte array can't be.
+  private void copy() {
+    final byte[] bytes = SecureTextInputManager.getText(ID).getBytes(UTF_8);
+    mBuffer.clear();
+    mBuffer.put(bytes);
+    mBuffer.flip();
+    consumeBytes(mBuffer);
+    mBuffer.clear();
+    while (mBuffer.hasRemaining()) {
+      mBuffer.put((byte) 0);
+    }
+    mBuffer.clear();
+  }
+
+  private void consumeBytes(ByteBuffer utf8) {
+    long sum = 0;
+    for (int i = utf8.position(); i < utf8.limit(); i++) {
+      sum += utf8.get(i);
+    }
+    mChecksum += sum;
+  }
+
+  // A value with 1, 2 and 3 byte UTF-8 chars
+  private static String value(int length) {
+    final StringBuilder value = new StringBuilder(length);
+    final String chars = "abcdefghij0123456789\u00e9\u00e8\u20ac";
+    for (int i = 0; i < length; i++) {
+      value.append(chars.charAt(i % chars.length()));
+    }
+    assertEquals(length, value.length());
+    return value.toString();
+  }
+
+  private static com.sun.management.ThreadMXBean threadMXBean() {
+    try {
+      return (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    } catch (ClassCastException | NoClassDefFoundError e) {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,146 @@
+package com.statuspoc;
+
+import static org.junit.Assert.assertTrue;
+
+import android.text.Editable;
+import java.util.ArrayList;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+/**
+ * Measures what mounting, editing and unmounting a secure view costs, as the number of views
+ * mounted so far and alive at once grows, and how much memory stays behind. Excluded from the unit
+ * tests, run with {@code ./gradlew testDebugUnitTest -Pbenchmarks}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SecureFieldSoakBenchmark {
+
+  private static final int ROUNDS = 10;
+  private static final int VIEWS_PER_ROUND = 400;
+  private static final int[] LIVE_VIEWS = {250, 500, 1000, 2000};
+  // How much slower an operation may get, over the rounds or with 8 times more live views
+  private static final double MAX_SLOWDOWN = 3;
+  private static final long MAX_RETAINED_BYTES = 4 * 1024 * 1024;
+
+  private final Random mRandom = new Random(31);
+  private SecureViewHarness mHarness;
+
+  @Before
+  public void setUp() {
+    mHarness = new SecureViewHarness();
+  }
+
+  @After
+  public void tearDown() {
+    mHarness.destroy();
+  }
+
+  @Test
+  public void mountEditUnmountRounds() {
+    final double[] nanosPerView = new double[ROUNDS];
+    long firstRetainedBytes = 0;
+    for (int round = 0; round < ROUNDS; round++) {
+      final long start = System.nanoTime();
+      final ArrayList<SecureEditText> views = new ArrayList<SecureEditText>();
+      final ArrayList<ReactSecureEditText> legacyViews = new ArrayList<ReactSecureEditText>();
+      for (int i = 0; i < VIEWS_PER_ROUND; i++) {
+        views.add(mHarness.mount(null, randomId()));
+        legacyViews.add(mHarness.mountLegacy(randomId()));
+      }
+      for (int i = 0; i < VIEWS_PER_ROUND; i++) {
+        edit(views.get(i).getText());
+        edit(legacyViews.get(i).getText());
+        mHarness.register(views.get(i), null, randomId());
+        mHarness.getLegacyManager().setRegistrationId(legacyViews.get(i), randomId());
+        edit(views.get(i).getText());
+        edit(legacyViews.get(i).getText());
+      }
+      for (int i = 0; i < VIEWS_PER_ROUND; i++) {
+        mHarness.unmount(views.get(i));
+        mHarness.unmount(legacyViews.get(i));
+      }
+      nanosPerView[round] = (System.nanoTime() - start) / (2.0 * VIEWS_PER_ROUND);
+      views.clear();
+      legacyViews.clear();
+
+      final long retainedBytes = usedHeapAfterGc();
+      if (round == 0) {
+        firstRetainedBytes = retainedBytes;
+      }
+      System.out.println(String.format(
+          "round %d: %.1f us per view, %d KB retained, %d views mounted so far",
+          round, nanosPerView[round] / 1000, retainedBytes / 1024,
+          2 * VIEWS_PER_ROUND * (round + 1)));
+    }
+
+    final long growth = usedHeapAfterGc() - firstRetainedBytes;
+    assertTrue(growth + " bytes retained over the rounds", growth <= MAX_RETAINED_BYTES);
+    // The first round warms up, the next three are compared with the last three
+    final double early = (nanosPerView[1] + nanosPerView[2] + nanosPerView[3]) / 3;
+    final double late =
+        (nanosPerView[ROUNDS - 3] + nanosPerView[ROUNDS - 2] + nanosPerView[ROUNDS - 1]) / 3;
+    assertTrue(
+        "an operation got " + late / early + " times slower over the rounds",
+        late <= early * MAX_SLOWDOWN);
+  }
+
+  @Test
+  public void operationsScaleWithLiveViews() {
+    // Warm-up
+    measureWithLiveViews(LIVE_VIEWS[0]);
+
+    final double[] nanosPerView = new double[LIVE_VIEWS.length];
+    for (int i = 0; i < LIVE_VIEWS.length; i++) {
+      nanosPerView[i] = measureWithLiveViews(LIVE_VIEWS[i]);
+      System.out.println(String.format(
+          "%d live views: %.1f us per view", LIVE_VIEWS[i], nanosPerView[i] / 1000));
+    }
+    final double ratio = nanosPerView[LIVE_VIEWS.length - 1] / nanosPerView[0];
+    assertTrue(
+        "an operation got " + ratio + " times slower with "
+            + LIVE_VIEWS[LIVE_VIEWS.length - 1] + " live views",
+        ratio <= MAX_SLOWDOWN);
+  }
+
+  // Mounts count views, edits each while all are mounted, then unmounts them all. Returns the time
+  // per view.
+  private double measureWithLiveViews(int count) {
+    final long start = System.nanoTime();
+    final ArrayList<SecureEditText> views = new ArrayList<SecureEditText>();
+    for (int i = 0; i < count; i++) {
+      views.add(mHarness.mount(null, randomId()));
+    }
+    for (int i = 0; i < count; i++) {
+      edit(views.get(i).getText());
+    }
+    for (int i = 0; i < count; i++) {
+      mHarness.unmount(views.get(i));
+    }
+    return (System.nanoTime() - start) / (double) count;
+  }
+
+  private void edit(Editable text) {
+    final int length = 1 + mRandom.nextInt(16);
+    for (int i = 0; i < length; i++) {
+      text.append((char) ('a' + mRandom.nextInt(26)));
+    }
+    text.delete(0, mRandom.nextInt(text.length() + 1));
+  }
+
+  private String randomId() {
+    return Long.toHexString(mRandom.nextLong());
+  }
+
+  private static long usedHeapAfterGc() {
+    final Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+      System.runFinalization();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
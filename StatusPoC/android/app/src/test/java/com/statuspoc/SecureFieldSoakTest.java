@@ -0,0 +1,205 @@
+package com.statuspoc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import android.text.Editable;
+import android.view.View;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+
+/**
+ * Mounts, edits and unmounts thousands of secure views with random registration IDs, through the
+ * view managers as React would. Checks that the registries are empty once the views are gone, that
+ * every edit reaches the registry exactly once, that unmounted views can be collected, and that
+ * nothing piles up on the UI thread. What these operations cost is measured by
+ * SecureFieldSoakBenchmark.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SecureFieldSoakTest {
+
+  private static final int ROUNDS = 10;
+  private static final int VIEWS_PER_ROUND = 400;
+  private static final int LIVE_VIEWS = 2000;
+  // Unmounted views the platform may still hold on to, e.g. the last one the IME saw
+  private static final int MAX_RETAINED_VIEWS = 4;
+  private static final int GC_ATTEMPTS = 10;
+
+  private final Random mRandom = new Random(31);
+  private SecureViewHarness mHarness;
+  private int mReplaces;
+
+  // Counts the edits that reach a field
+  private final SecureField.EditListener mReplaceCounter = new SecureField.EditListener() {
+    @Override
+    public void onBeforeReplace(SecureBuffer value, int start, int before) {
+    }
+
+    @Override
+    public void onAfterReplace(SecureBuffer value, int start, int count) {
+      mReplaces++;
+    }
+  };
+
+  @Before
+  public void setUp() {
+    mHarness = new SecureViewHarness();
+  }
+
+  @After
+  public void tearDown() {
+    mHarness.destroy();
+  }
+
+  @Test
+  public void mountEditUnmountRounds() {
+    final ArrayList<WeakReference<View>> unmounted = new ArrayList<WeakReference<View>>();
+    int idleTasks = -1;
+    for (int round = 0; round < ROUNDS; round++) {
+      final ArrayList<SecureEditText> views = new ArrayList<SecureEditText>();
+      final ArrayList<ReactSecureEditText> legacyViews = new ArrayList<ReactSecureEditText>();
+      final ArrayList<String> legacyIds = new ArrayList<String>();
+      for (int i = 0; i < VIEWS_PER_ROUND; i++) {
+        views.add(mHarness.mount(null, randomId()));
+        legacyIds.add(randomId());
+        legacyViews.add(mHarness.mountLegacy(legacyIds.get(i)));
+      }
+      assertEquals(VIEWS_PER_ROUND, SecureTextInputManager.getRegistrySize());
+      assertEquals(VIEWS_PER_ROUND, SecureTextInputManager.getRegisteredViewCount());
+      assertEquals(VIEWS_PER_ROUND, ReactSecureTextInputManager.getRegistrySize());
+
+      for (int i = 0; i < VIEWS_PER_ROUND; i++) {
+        final SecureEditText view = views.get(i);
+        final ReactSecureEditText legacyView = legacyViews.get(i);
+        edit(view);
+        editLegacy(legacyView, legacyIds.get(i));
+        // A prop update to a new ID replaces the entry, and keeps the watcher
+        mHarness.register(view, null, randomId());
+        legacyIds.set(i, randomId());
+        mHarness.getLegacyManager().setRegistrationId(legacyView, legacyIds.get(i));
+        edit(view);
+        editLegacy(legacyView, legacyIds.get(i));
+        assertNotNull(view.getTextWatcher());
+        assertNotNull(legacyView.getTextWatcher());
+      }
+      assertEquals(VIEWS_PER_ROUND, SecureTextInputManager.getRegistrySize());
+      assertEquals(VIEWS_PER_ROUND, ReactSecureTextInputManager.getRegistrySize());
+
+      for (int i = 0; i < VIEWS_PER_ROUND; i++) {
+        unmounted.add(unmount(views.get(i)));
+        unmounted.add(unmount(legacyViews.get(i)));
+      }
+      views.clear();
+      legacyViews.clear();
+
+      assertEquals(0, SecureTextInputManager.getRegistrySize());
+      assertEquals(0, SecureTextInputManager.getRegisteredViewCount());
+      // Only the default scope is left
+      assertEquals(1, SecureTextInputManager.getScopeCount());
+      assertEquals(0, ReactSecureTextInputManager.getRegistrySize());
+      assertEquals(0, ReactSecureTextInputManager.getRegisteredViewCount());
+
+      // Later rounds leave no more posted than the first, e.g. a retention tick
+      final int tasks = Robolectric.getForegroundThreadScheduler().size();
+      if (idleTasks < 0) {
+        idleTasks = tasks;
+      }
+      assertTrue(tasks + " tasks posted after round " + round, tasks <= idleTasks);
+    }
+
+    final int retained = countRetained(unmounted);
+    assertTrue(retained + " unmounted views were not collected", retained <= MAX_RETAINED_VIEWS);
+  }
+
+  @Test
+  public void manyLiveViews() {
+    final ArrayList<SecureEditText> views = new ArrayList<SecureEditText>();
+    for (int i = 0; i < LIVE_VIEWS; i++) {
+      views.add(mHarness.mount(null, randomId()));
+    }
+    for (int i = 0; i < LIVE_VIEWS; i++) {
+      edit(views.get(i));
+    }
+    assertEquals(LIVE_VIEWS, SecureTextInputManager.getRegistrySize());
+    assertEquals(LIVE_VIEWS, SecureTextInputManager.getRegisteredViewCount());
+
+    final ArrayList<WeakReference<View>> unmounted = new ArrayList<WeakReference<View>>();
+    for (int i = 0; i < LIVE_VIEWS; i++) {
+      unmounted.add(unmount(views.get(i)));
+    }
+    views.clear();
+    assertEquals(0, SecureTextInputManager.getRegistrySize());
+    assertEquals(0, SecureTextInputManager.getRegisteredViewCount());
+
+    final int retained = countRetained(unmounted);
+    assertTrue(retained + " unmounted views were not collected", retained <= MAX_RETAINED_VIEWS);
+  }
+
+  // Types a few chars and deletes some, checking that each change is applied to the registry
+  // exactly once
+  private void edit(SecureEditText view) {
+    final SecureField field = mHarness.getRegistry().getField(view);
+    assertNotNull(field);
+    field.addEditListener(mReplaceCounter);
+    mReplaces = 0;
+    int changes = 0;
+    final Editable text = view.getText();
+    final int length = 1 + mRandom.nextInt(16);
+    for (int i = 0; i < length; i++) {
+      text.append((char) ('a' + mRandom.nextInt(26)));
+      changes++;
+    }
+    final int deleted = mRandom.nextInt(text.length() + 1);
+    text.delete(0, deleted);
+    if (deleted > 0) {
+      changes++;
+    }
+    field.removeEditListener(mReplaceCounter);
+
+    assertEquals(changes, mReplaces);
+    assertEquals(text.toString(), field.getValue().toString());
+  }
+
+  private void editLegacy(ReactSecureEditText view, String id) {
+    final Editable text = view.getText();
+    final int length = 1 + mRandom.nextInt(16);
+    for (int i = 0; i < length; i++) {
+      text.append((char) ('a' + mRandom.nextInt(26)));
+    }
+    text.delete(0, mRandom.nextInt(text.length() + 1));
+    assertEquals(text.toString(), ReactSecureTextInputManager.getText(id));
+  }
+
+  private WeakReference<View> unmount(View view) {
+    mHarness.unmount(view);
+    return new WeakReference<View>(view);
+  }
+
+  private String randomId() {
+    return Long.toHexString(mRandom.nextLong());
+  }
+
+  // Returns how many of the views are still reachable, after giving the collector a few chances
+  private static int countRetained(ArrayList<WeakReference<View>> views) {
+    int retained = views.size();
+    for (int attempt = 0; attempt < GC_ATTEMPTS && retained > MAX_RETAINED_VIEWS; attempt++) {
+      System.gc();
+      System.runFinalization();
+      retained = 0;
+      for (WeakReference<View> view : views) {
+        if (view.get() != null) {
+          retained++;
+        }
+      }
+    }
+    return retained;
+  }
+}
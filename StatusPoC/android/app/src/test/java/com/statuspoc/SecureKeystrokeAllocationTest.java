@@ -0,0 +1,227 @@
+package com.statuspoc;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import android.text.Editable;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+/**
+ * Types into a mounted secure view, with a digest and validators on its field, and fails if a
+ * keystroke makes the secure text watcher allocate more than a few bytes once warmed up.
+ *
+ * Each keystroke is also made on a view that isn't registered, and what that one allocates is
+ * subtracted: the Editable and the layout of the view allocate on their own, and are not what this
+ * test keeps flat. Reading the digest is measured on its own. The limit per keystroke can be raised
+ * with {@code -Dsecure.keystroke.maxBytes}. The build turns off escape analysis for the tests, as
+ * ART doesn't have it.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SecureKeystrokeAllocationTest {
+
+  private static final String ID = "password";
+  private static final String TEXT = "correct horse battery staple 0123456789abcdef";
+  private static final int WARM_UP_ROUNDS = 300;
+  private static final int ROUNDS = 300;
+  private static final long MAX_BYTES_PER_KEYSTROKE =
+      Long.getLong("secure.keystroke.maxBytes", 0);
+  // Class loading and deoptimization make the JVM allocate once in a while, on whichever
+  // keystroke is running. A kind of keystroke fails when more than one in this many go over.
+  private static final int OUTLIERS_PER = 1000;
+  // More than any group of edits undone at once
+  private static final int MAX_UNDONE_EDITS = 256;
+
+  private static final int TYPE = 0;
+  private static final int DELETE = 1;
+  private static final int UNDO = 2;
+  private static final int DIGEST = 3;
+  private static final String[] KINDS = {"type", "delete", "undo", "digest"};
+
+  private SecureViewHarness mHarness;
+  private SecureEditText mView;
+  private SecureEditText mControl;
+  private com.sun.management.ThreadMXBean mThreads;
+  private long mThread;
+  // What reading the allocated bytes allocates itself
+  private long mOverhead;
+  private final byte[] mDigest = new byte[SecureDigest.DIGEST_LENGTH];
+
+  // The edits of the current keystroke, so they can be made on the control view as well
+  private final int[] mEditStart = new int[MAX_UNDONE_EDITS];
+  private final int[] mEditBefore = new int[MAX_UNDONE_EDITS];
+  private final int[] mEditCount = new int[MAX_UNDONE_EDITS];
+  private int mEdits;
+  // Bytes allocated by the edit listeners of the field during the current keystroke
+  private long mListenerBytes;
+  private long mReplaceStart;
+
+  // Worst keystroke of each kind, and how many went over the limit
+  private final long[] mWorstBytes = new long[KINDS.length];
+  private final long[] mWorstListenerBytes = new long[KINDS.length];
+  private final int[] mWorstIndex = new int[KINDS.length];
+  private final int[] mOverLimit = new int[KINDS.length];
+  private final int[] mCount = new int[KINDS.length];
+
+  // Added last, so it sees the edit once every other listener of the field has
+  private final SecureField.EditListener mProbe = new SecureField.EditListener() {
+    @Override
+    public void onBeforeReplace(SecureBuffer value, int start, int before) {
+      mEditStart[mEdits] = start;
+      mEditBefore[mEdits] = before;
+      mReplaceStart = allocated();
+    }
+
+    @Override
+    public void onAfterReplace(SecureBuffer value, int start, int count) {
+      mListenerBytes += allocated() - mReplaceStart - mOverhead;
+      mEditCount[mEdits++] = count;
+    }
+  };
+
+  @Before
+  public void setUp() {
+    mThreads = threadMXBean();
+    assertNotNull("allocations can't be measured on this JVM", mThreads);
+    assertTrue(
+        "allocations can't be measured on this JVM", mThreads.isThreadAllocatedMemorySupported());
+    mThreads.setThreadAllocatedMemoryEnabled(true);
+    mThread = Thread.currentThread().getId();
+    mOverhead = measureOverhead();
+
+    mHarness = new SecureViewHarness();
+    mView = mHarness.create();
+    // Validators that hold for the whole text, as a keystroke that changes the verdict sends an
+    // event, which allocates
+    mView.setPendingValidators(Arrays.asList(
+        SecureValidator.parse("maxLength:64"),
+        SecureValidator.parse("charset:ascii"),
+        SecureValidator.parse("pattern:[a-z0-9 ]*")));
+    mHarness.register(mView, null, ID);
+    assertTrue(SecureTextInputManager.getDigest(null, ID, mDigest));
+    mHarness.getRegistry().getField(mView).addEditListener(mProbe);
+    mControl = mHarness.create();
+  }
+
+  @After
+  public void tearDown() {
+    mHarness.destroy();
+  }
+
+  @Test
+  public void keystrokesDontAllocate() {
+    type(WARM_UP_ROUNDS, false);
+    final int keystrokes = type(ROUNDS, true);
+
+    final StringBuilder report = new StringBuilder();
+    for (int kind = 0; kind < KINDS.length; kind++) {
+      if (mOverLimit[kind] > mCount[kind] / OUTLIERS_PER) {
+        report.append(String.format(
+            "\n%s: %d of %d over the limit, the worst (#%d) allocated %d bytes, %d of them in the"
+                + " edit listeners of the field",
+            KINDS[kind], mOverLimit[kind], mCount[kind], mWorstIndex[kind], mWorstBytes[kind],
+            mWorstListenerBytes[kind]));
+      }
+    }
+    if (report.length() > 0) {
+      fail("keystrokes allocated more than " + MAX_BYTES_PER_KEYSTROKE + " bytes, out of "
+          + keystrokes + ":" + report);
+    }
+  }
+
+  // Types TEXT char by char, reading the digest after each, then deletes it char by char and
+  // undoes the deletions, as many times as asked. Returns the number of keystrokes.
+  private int type(int rounds, boolean measure) {
+    final Editable text = mView.getText();
+    int keystrokes = 0;
+    for (int round = 0; round < rounds; round++) {
+      for (int i = 0; i < TEXT.length(); i++) {
+        final long start = startKeystroke();
+        text.append(TEXT, i, i + 1);
+        endKeystroke(TYPE, start, keystrokes++, measure);
+
+        final long digestStart = startKeystroke();
+        SecureTextInputManager.getDigest(null, ID, mDigest);
+        endKeystroke(DIGEST, digestStart, keystrokes, measure);
+      }
+      for (int i = TEXT.length(); i > 0; i--) {
+        final long start = startKeystroke();
+        text.delete(i - 1, i);
+        endKeystroke(DELETE, start, keystrokes++, measure);
+      }
+      while (true) {
+        final long start = startKeystroke();
+        if (!SecureTextInputManager.undo(ID)) {
+          break;
+        }
+        endKeystroke(UNDO, start, keystrokes++, measure);
+      }
+      text.clear();
+      mControl.getText().clear();
+    }
+    return keystrokes;
+  }
+
+  private long startKeystroke() {
+    mEdits = 0;
+    mListenerBytes = 0;
+    return allocated();
+  }
+
+  // Makes the edits of the keystroke on the control view and records what the secure one
+  // allocated on top of it
+  private void endKeystroke(int kind, long start, int index, boolean measure) {
+    final long end = allocated();
+    final long controlStart = allocated();
+    final Editable control = mControl.getText();
+    for (int i = 0; i < mEdits; i++) {
+      control.replace(mEditStart[i], mEditStart[i] + mEditBefore[i], TEXT, 0, mEditCount[i]);
+    }
+    final long controlBytes = allocated() - controlStart - mOverhead;
+    if (!measure) {
+      return;
+    }
+
+    // The probe read the counter twice per edit
+    final long bytes =
+        end - start - mOverhead - 2 * mEdits * mOverhead - Math.max(0, controlBytes);
+    mCount[kind]++;
+    if (bytes > MAX_BYTES_PER_KEYSTROKE) {
+      mOverLimit[kind]++;
+    }
+    if (bytes > mWorstBytes[kind]) {
+      mWorstBytes[kind] = bytes;
+      mWorstListenerBytes[kind] = mListenerBytes;
+      mWorstIndex[kind] = index;
+    }
+  }
+
+  private long allocated() {
+    return mThreads.getThreadAllocatedBytes(mThread);
+  }
+
+  // Some JVMs allocate an array to read the counter. The smallest of many samples is what a single
+  // read costs.
+  private long measureOverhead() {
+    long overhead = Long.MAX_VALUE;
+    for (int i = 0; i < 1000; i++) {
+      final long start = allocated();
+      overhead = Math.min(overhead, allocated() - start);
+    }
+    return overhead;
+  }
+
+  private static com.sun.management.ThreadMXBean threadMXBean() {
+    try {
+      return (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    } catch (ClassCastException | NoClassDefFoundError e) {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,79 @@
+package com.statuspoc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+/**
+ * A view with a matchRegistrationID is matched with the other field whenever that field exists,
+ * in whichever order the views are mounted, and never creates it itself.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SecureMatchBindingTest {
+
+  private SecureViewHarness mHarness;
+  private SecureEditText mPassword;
+
+  @Before
+  public void setUp() {
+    mHarness = new SecureViewHarness();
+    mPassword = mHarness.mount(null, "password");
+    mHarness.getManager().setMatchRegistrationId(mPassword, "confirm");
+    mHarness.register(mPassword, null, "password");
+    mPassword.getText().append("hunter2");
+  }
+
+  @After
+  public void tearDown() {
+    mHarness.destroy();
+  }
+
+  @Test
+  public void otherFieldIsNotCreated() {
+    assertNull(mHarness.getRegistry().getField(null, "confirm"));
+    assertEquals(1, SecureTextInputManager.getRegistrySize());
+    assertNull(mPassword.getMatch());
+  }
+
+  @Test
+  public void matchIsBoundWhenTheOtherViewIsMountedLater() {
+    final SecureEditText confirm = mHarness.mount(null, "confirm");
+    assertNotNull(mPassword.getMatch());
+    assertFalse(mPassword.getMatch().matches());
+
+    confirm.getText().append("hunter2");
+    assertTrue(mPassword.getMatch().matches());
+  }
+
+  @Test
+  public void matchIsReboundWhenTheOtherViewIsMountedAgain() {
+    final SecureEditText confirm = mHarness.mount(null, "confirm");
+    mHarness.unmount(confirm);
+    assertNull(mPassword.getMatch());
+    assertEquals(1, SecureTextInputManager.getRegistrySize());
+
+    final SecureEditText again = mHarness.mount(null, "confirm");
+    again.getText().append("hunter2");
+    assertNotNull(mPassword.getMatch());
+    assertTrue(mPassword.getMatch().matches());
+  }
+
+  @Test
+  public void unmountedMatcherIsForgotten() {
+    final SecureRegistry.Scope scope = mHarness.getRegistry().getScope(null);
+    assertEquals(1, scope.getMatchers("confirm").size());
+
+    mHarness.unmount(mPassword);
+    assertNull(scope.getMatchers("confirm"));
+    mHarness.mount(null, "confirm");
+    assertNull(mPassword.getMatch());
+  }
+}
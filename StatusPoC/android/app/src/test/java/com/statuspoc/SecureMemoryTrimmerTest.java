@@ -0,0 +1,77 @@
+package com.statuspoc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.content.ComponentCallbacks2;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+/**
+ * The fields of a named scope outlive their views. Trims delivered while the app is in the
+ * foreground compact them, only TRIM_MEMORY_COMPLETE wipes them.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SecureMemoryTrimmerTest {
+
+  private static final String SCOPE = "onboarding";
+  private static final String ID = "password";
+
+  private SecureViewHarness mHarness;
+  private SecureMemoryTrimmer mTrimmer;
+  private SecureField mField;
+
+  @Before
+  public void setUp() {
+    mHarness = new SecureViewHarness();
+    mTrimmer = mHarness.getModule().getTrimmer();
+    final SecureEditText view = mHarness.mount(SCOPE, ID);
+    view.getText().append("hunter2");
+    mField = mHarness.getRegistry().getField(view);
+    mHarness.unmount(view);
+  }
+
+  @After
+  public void tearDown() {
+    mHarness.destroy();
+  }
+
+  @Test
+  public void runningCriticalKeepsTheValue() {
+    mTrimmer.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL);
+
+    final SecureRegistry.Scope scope = mHarness.getRegistry().getScope(SCOPE);
+    assertNotNull(scope.getField(ID));
+    assertEquals("hunter2", mField.getValue().toString());
+    final SecureMemoryTrimmer.Stats stats =
+        mTrimmer.getStats(ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL);
+    assertEquals(0, stats.getWipedFields());
+    assertTrue(stats.getReleasedBytes() > 0);
+  }
+
+  @Test
+  public void completeWipesTheValueAndCountsItsCapacity() {
+    // Leaves the value alone in the arena, in a slice larger than the value
+    mTrimmer.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL);
+    final SecureRegistry.Scope scope = mHarness.getRegistry().getScope(SCOPE);
+    final char[] chars = scope.getArena().getChars();
+    assertTrue(chars.length > mField.getValue().length());
+
+    mTrimmer.onLowMemory();
+
+    assertNull(scope.getField(ID));
+    assertEquals(0, mField.getValue().length());
+    for (char c : chars) {
+      assertEquals('\0', c);
+    }
+    final SecureMemoryTrimmer.Stats stats =
+        mTrimmer.getStats(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+    assertEquals(1, stats.getWipedFields());
+    assertEquals(chars.length * 2, stats.getReleasedBytes());
+  }
+}
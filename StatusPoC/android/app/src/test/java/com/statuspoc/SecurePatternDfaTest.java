@@ -0,0 +1,162 @@
+package com.statuspoc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+import org.junit.Test;
+
+public class SecurePatternDfaTest {
+
+  // No line terminators, so $ means the same for java.util.regex
+  private static final String ALPHABET = "ab0_ ";
+
+  @Test
+  public void matchesLikeJavaRegex() {
+    final String[] patterns = {
+        "", "a", "ab|", "a*b+", "(ab)?a", "[a-f0-9]{40}", "(0x)?[0-9a-fA-F]{40}",
+        "a{0}", "a{2}", "a{2,}", "a{1,3}", "(a|b){2,3}", "(a{2}b){1,2}", "[^ ]{2,4}",
+        "^a$", "^$", "a^", "$a", "a$|^b", "(^a|b)+", "(a$)*", "\\d+\\s?\\w*", "\\D\\W\\S",
+        "[\\d_]+", "[^\\s]*", "\\.", "a.b", "\\{1}",
+    };
+    final String[] values = strings(4);
+    for (String pattern : patterns) {
+      check(pattern, values);
+    }
+  }
+
+  @Test
+  public void matchesLikeJavaRegexOnRandomPatterns() {
+    final Random random = new Random(27);
+    final String[] values = strings(5);
+    for (int i = 0; i < 2000; i++) {
+      // Anchors stay out of groups: java.util.regex stops repeating a group after an empty
+      // iteration, so it rejects e.g. "0" for (^\d?){2}
+      final String pattern = randomPattern(random, 3);
+      check(pattern, values);
+      check("^" + pattern, values);
+      check(pattern + "$", values);
+    }
+  }
+
+  @Test
+  public void rejectsUnsupportedSyntax() {
+    final String[] patterns = {
+        "a{", "a{}", "a{,2}", "a{2,1}", "a{1", "{2}", "*a", "a)", "(a", "[a", "[z-a]", "\\q",
+        "\\1", "a{99999}",
+    };
+    for (String pattern : patterns) {
+      try {
+        new SecurePatternDfa(pattern);
+        fail(pattern + " was accepted");
+      } catch (IllegalArgumentException e) {
+        // Expected
+      }
+    }
+  }
+
+  @Test
+  public void rejectsPatternsWithTooManyStates() {
+    // The DFA needs a state per combination of the last 21 chars
+    try {
+      new SecurePatternDfa("(a|b)*a(a|b){20}");
+      fail("too complex pattern was accepted");
+    } catch (IllegalArgumentException e) {
+      // Expected
+    }
+    new SecurePatternDfa("(a|b)*a(a|b){8}");
+  }
+
+  private static void check(String pattern, String[] values) {
+    final Pattern expected = Pattern.compile(pattern, Pattern.DOTALL);
+    final SecurePatternDfa dfa = new SecurePatternDfa(pattern);
+    for (String value : values) {
+      int state = dfa.getInitialState();
+      for (int i = 0; i < value.length(); i++) {
+        state = dfa.next(state, value.charAt(i));
+      }
+      assertEquals(
+          "/" + pattern + "/ on \"" + value + "\"",
+          expected.matcher(value).matches(),
+          dfa.isAccepting(state));
+    }
+  }
+
+  // Every string over ALPHABET of at most maxLength chars, plus a non-ASCII one
+  private static String[] strings(int maxLength) {
+    int count = 1;
+    for (int length = 1, n = 1; length <= maxLength; length++) {
+      n *= ALPHABET.length();
+      count += n;
+    }
+    final String[] result = new String[count + 1];
+    result[0] = "";
+    int next = 1;
+    for (int i = 0; next < count; i++) {
+      for (int c = 0; c < ALPHABET.length(); c++) {
+        result[next++] = result[i] + ALPHABET.charAt(c);
+      }
+    }
+    result[count] = "a\u00e9b";
+    return result;
+  }
+
+  private static String randomPattern(Random random, int depth) {
+    final StringBuilder pattern = new StringBuilder();
+    final int terms = random.nextInt(4);
+    for (int i = 0; i < terms; i++) {
+      pattern.append(randomAtom(random, depth));
+      switch (random.nextInt(8)) {
+        case 0:
+          pattern.append('*');
+          break;
+        case 1:
+          pattern.append('+');
+          break;
+        case 2:
+          pattern.append('?');
+          break;
+        case 3:
+          pattern.append('{').append(random.nextInt(3)).append('}');
+          break;
+        case 4: {
+          final int min = random.nextInt(3);
+          pattern.append('{').append(min).append(',');
+          if (random.nextBoolean()) {
+            pattern.append(min + random.nextInt(3));
+          }
+          pattern.append('}');
+          break;
+        }
+        default:
+          break;
+      }
+    }
+    if (depth > 0 && random.nextInt(4) == 0) {
+      pattern.append('|').append(randomPattern(random, depth - 1));
+    }
+    return pattern.toString();
+  }
+
+  private static String randomAtom(Random random, int depth) {
+    switch (random.nextInt(depth > 0 ? 8 : 7)) {
+      case 0:
+        return "a";
+      case 1:
+        return "b";
+      case 2:
+        return ".";
+      case 3:
+        return "[a0]";
+      case 4:
+        return "[^b ]";
+      case 5:
+        return "\\d";
+      case 6:
+        return "\\w";
+      default:
+        return "(" + randomPattern(random, depth - 1) + ")";
+    }
+  }
+}
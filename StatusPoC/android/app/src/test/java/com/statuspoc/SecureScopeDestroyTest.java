@@ -0,0 +1,82 @@
+package com.statuspoc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+/**
+ * Destroying a named scope wipes the values of all its fields, through its arena, whether or not
+ * their views are still mounted.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SecureScopeDestroyTest {
+
+  private static final String SCOPE = "onboarding";
+  private static final int FIELDS = 50;
+
+  private SecureViewHarness mHarness;
+
+  @Before
+  public void setUp() {
+    mHarness = new SecureViewHarness();
+  }
+
+  @After
+  public void tearDown() {
+    mHarness.destroy();
+  }
+
+  @Test
+  public void destroyWipesMountedAndUnmountedFields() {
+    final ArrayList<SecureEditText> views = new ArrayList<SecureEditText>();
+    final ArrayList<SecureField> fields = new ArrayList<SecureField>();
+    for (int i = 0; i < FIELDS; i++) {
+      final SecureEditText view = mHarness.mount(SCOPE, "field" + i);
+      view.getText().append("secret" + i);
+      views.add(view);
+      fields.add(mHarness.getRegistry().getField(view));
+    }
+    // Half of the views go away, their fields stay in the scope
+    for (int i = 0; i < FIELDS; i += 2) {
+      mHarness.unmount(views.get(i));
+    }
+    final SecureRegistry.Scope scope = mHarness.getRegistry().getScope(SCOPE);
+    assertEquals(FIELDS, scope.getFieldCount());
+    assertTrue(mHarness.getRegistry().getRetention().getBytes() > 0);
+    final char[] chars = scope.getArena().getChars();
+
+    SecureTextInputManager.destroyScope(SCOPE);
+
+    assertNull(mHarness.getRegistry().getScope(SCOPE));
+    assertEquals(0, mHarness.getRegistry().getRetention().getBytes());
+    for (char c : chars) {
+      assertEquals('\0', c);
+    }
+    for (int i = 0; i < FIELDS; i++) {
+      assertEquals(0, fields.get(i).getValue().length());
+    }
+    for (int i = 1; i < FIELDS; i += 2) {
+      assertEquals("", views.get(i).getText().toString());
+      assertNull(views.get(i).getRegistrationId());
+    }
+  }
+
+  @Test
+  public void newScopeWithTheSameNameStartsEmpty() {
+    final SecureEditText view = mHarness.mount(SCOPE, "pin");
+    view.getText().append("1234");
+    SecureTextInputManager.destroyScope(SCOPE);
+
+    final SecureEditText next = mHarness.mount(SCOPE, "pin");
+    assertEquals("", mHarness.getRegistry().getField(next).getValue().toString());
+    next.getText().append("5678");
+    assertEquals("5678", mHarness.getRegistry().getField(next).getValue().toString());
+  }
+}
@@ -0,0 +1,82 @@
+package com.statuspoc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+/**
+ * Values set from native code are loaded into the view without going back into the registry as an
+ * edit, so the edit history never holds a copy of them.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SecureTextLoadTest {
+
+  private static final String ID = "seed";
+
+  private SecureViewHarness mHarness;
+  private SecureEditText mView;
+
+  @Before
+  public void setUp() {
+    mHarness = new SecureViewHarness();
+    mView = mHarness.mount(null, ID);
+  }
+
+  @After
+  public void tearDown() {
+    mHarness.destroy();
+  }
+
+  @Test
+  public void loadIsNotAnEdit() {
+    SecureTextInputManager.setText(ID, "hunter2");
+    mHarness.runFrames();
+
+    final SecureField field = mHarness.getRegistry().getField(mView);
+    assertEquals("hunter2", mView.getText().toString());
+    assertEquals("hunter2", field.getValue().toString());
+    assertFalse(field.getHistory().canUndo());
+  }
+
+  @Test
+  public void loadOverTypedTextIsNotAnEdit() {
+    mView.getText().append("abc");
+    SecureTextInputManager.setText(ID, "hunter2");
+    mHarness.runFrames();
+
+    final SecureField field = mHarness.getRegistry().getField(mView);
+    assertEquals("hunter2", field.getValue().toString());
+    assertFalse(field.getHistory().canUndo());
+  }
+
+  @Test
+  public void typingAfterLoadIsUndoneToTheLoadedValue() {
+    SecureTextInputManager.setText(ID, "hunter2");
+    mHarness.runFrames();
+    mView.getText().append("x");
+
+    assertTrue(SecureTextInputManager.undo(ID));
+    final SecureField field = mHarness.getRegistry().getField(mView);
+    assertEquals("hunter2", field.getValue().toString());
+    assertEquals("hunter2", mView.getText().toString());
+    assertFalse(field.getHistory().canUndo());
+  }
+
+  @Test
+  public void formattedLoadIsNotAnEdit() {
+    mHarness.getManager().setFormat(mView, "card");
+    SecureTextInputManager.setText(ID, "12345678");
+    mHarness.runFrames();
+
+    final SecureField field = mHarness.getRegistry().getField(mView);
+    assertEquals("1234 5678", mView.getText().toString());
+    assertEquals("12345678", field.getValue().toString());
+    assertFalse(field.getHistory().canUndo());
+  }
+}
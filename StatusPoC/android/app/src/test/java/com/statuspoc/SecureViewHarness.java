@@ -0,0 +1,112 @@
+package com.statuspoc;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import android.app.Activity;
+import android.view.View;
+import android.widget.FrameLayout;
+import com.facebook.react.bridge.CatalystInstance;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.queue.ReactQueueConfiguration;
+import com.facebook.react.uimanager.DisplayMetricsHolder;
+import com.facebook.react.uimanager.ThemedReactContext;
+import com.facebook.react.uimanager.UIManagerModule;
+import com.facebook.react.uimanager.events.EventDispatcher;
+import javax.annotation.Nullable;
+import org.robolectric.Robolectric;
+
+/**
+ * Just enough of a React instance for secure views to reach their registry, with a root to mount
+ * them in. Views are created and registered through the view managers, as React would.
+ */
+final class SecureViewHarness {
+
+  private final FrameLayout mRoot;
+  private final ThemedReactContext mContext;
+  private final SecureRegistryModule mModule;
+  private final SecureTextInputManager mManager = new SecureTextInputManager();
+  private final ReactSecureTextInputManager mLegacyManager = new ReactSecureTextInputManager();
+
+  SecureViewHarness() {
+    final Activity activity = Robolectric.setupActivity(Activity.class);
+    DisplayMetricsHolder.initDisplayMetricsIfNotInitialized(activity);
+
+    final ReactApplicationContext reactContext = new ReactApplicationContext(activity);
+    final CatalystInstance catalystInstance = mock(CatalystInstance.class);
+    final UIManagerModule uiManager = mock(UIManagerModule.class);
+    when(uiManager.getEventDispatcher()).thenReturn(mock(EventDispatcher.class));
+    when(catalystInstance.getReactQueueConfiguration())
+        .thenReturn(mock(ReactQueueConfiguration.class));
+    when(catalystInstance.getNativeModule(UIManagerModule.class)).thenReturn(uiManager);
+    reactContext.initializeWithInstance(catalystInstance);
+    mModule = new SecureRegistryModule(reactContext);
+    when(catalystInstance.getNativeModule(SecureRegistryModule.class)).thenReturn(mModule);
+
+    mContext = new ThemedReactContext(reactContext, activity);
+    mRoot = new FrameLayout(activity);
+    activity.setContentView(mRoot);
+  }
+
+  SecureRegistryModule getModule() {
+    return mModule;
+  }
+
+  SecureRegistry getRegistry() {
+    return mModule.getRegistry();
+  }
+
+  SecureTextInputManager getManager() {
+    return mManager;
+  }
+
+  ReactSecureTextInputManager getLegacyManager() {
+    return mLegacyManager;
+  }
+
+  SecureEditText mount(@Nullable String scope, String id) {
+    final SecureEditText view = create();
+    register(view, scope, id);
+    return view;
+  }
+
+  /**
+   * Creates a view and mounts it, without registering it yet.
+   */
+  SecureEditText create() {
+    final SecureEditText view = mManager.createViewInstance(mContext);
+    mRoot.addView(view);
+    return view;
+  }
+
+  ReactSecureEditText mountLegacy(String id) {
+    final ReactSecureEditText view =
+        (ReactSecureEditText) mLegacyManager.createViewInstance(mContext);
+    mRoot.addView(view);
+    mLegacyManager.setRegistrationId(view, id);
+    return view;
+  }
+
+  void register(SecureEditText view, @Nullable String scope, String id) {
+    mManager.setRegistrationScope(view, scope);
+    mManager.setRegistrationId(view, id);
+    mManager.onAfterUpdateTransaction(view);
+  }
+
+  void unmount(View view) {
+    mRoot.removeView(view);
+  }
+
+  /**
+   * Runs what was posted to the UI thread so far, e.g. the frame that applies the values set with
+   * {@link SecureTextInputManager#setText}.
+   */
+  void runFrames() {
+    Robolectric.flushForegroundThreadScheduler();
+  }
+
+  void destroy() {
+    mModule.onCatalystInstanceDestroy();
+    runFrames();
+  }
+}